@@ -0,0 +1,71 @@
+package cs175.hw4.snakes.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cs175.hw4.snakes.FreeCells;
+
+/**
+ * ApplePlacementBenchmark: picking a random free cell for an apple the way
+ * the engine does, on a board partly covered by the snake. The picked cell is
+ * taken out of the free set and given back so the set keeps its size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApplePlacementBenchmark {
+
+	@Param({ "40", "100", "200" })
+	public int boardSize;
+
+	@Param({ "10", "100", "1000" })
+	public int snakeLength;
+
+	private FreeCells mFreeCells;
+	private Random mRandom;
+
+	@Setup
+	public void setUp() {
+		boolean[] snake = new boolean[boardSize * boardSize];
+		int[] coil = BenchLevels.coil(boardSize, boardSize, snakeLength);
+		for (int i = 0; i < coil.length; i += 2) {
+			snake[coil[i + 1] * boardSize + coil[i]] = true;
+		}
+
+		mFreeCells = new FreeCells();
+		mFreeCells.reset(boardSize * boardSize);
+		for (int y = 1; y < boardSize - 1; y++) {
+			for (int x = 1; x < boardSize - 1; x++) {
+				int cell = y * boardSize + x;
+				if (!snake[cell]) {
+					mFreeCells.add(cell);
+				}
+			}
+		}
+		mRandom = new Random(BenchLevels.SEED);
+	}
+
+	@Benchmark
+	public int placeApple() {
+		int cell = mFreeCells.random(mRandom);
+		mFreeCells.remove(cell);
+		mFreeCells.add(cell);
+		return cell;
+	}
+
+}
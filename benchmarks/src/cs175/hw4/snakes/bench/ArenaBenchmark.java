@@ -0,0 +1,60 @@
+package cs175.hw4.snakes.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cs175.hw4.snakes.Arena;
+import cs175.hw4.snakes.Walls;
+
+/**
+ * ArenaBenchmark: one tick of an Arena full of bots on an open board, with
+ * dead bots coming back so the number of snakes stays up. The target is 500
+ * snakes on 200x200 well within a 30 ticks per second budget.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArenaBenchmark {
+
+	private static final int SNAKE_LENGTH = 5;
+
+	@Param({ "200" })
+	public int boardSize;
+
+	@Param({ "100", "500" })
+	public int snakes;
+
+	private Arena mArena;
+
+	@Setup
+	public void setUp() throws IOException {
+		Walls walls = Walls.compile(BenchLevels.openBoard().getLevel(0),
+				boardSize, boardSize);
+		mArena = new Arena(walls, snakes, BenchLevels.SEED);
+		mArena.setRespawn(true);
+		for (int i = 0; i < snakes; i++) {
+			mArena.addSnake(true, SNAKE_LENGTH);
+		}
+	}
+
+	@Benchmark
+	public int tick() {
+		return mArena.tick();
+	}
+
+}
@@ -0,0 +1,62 @@
+package cs175.hw4.snakes.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cs175.hw4.snakes.Autopilot;
+import cs175.hw4.snakes.GameEngine;
+
+/**
+ * AutopilotBenchmark: a tick steered by the Autopilot, choosing the input
+ * and stepping the engine, through the game's own levels. A new game starts
+ * whenever one ends.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutopilotBenchmark {
+
+	@Param({ "40", "100", "200" })
+	public int boardSize;
+
+	private GameEngine mEngine;
+	private Autopilot mPilot;
+
+	@Setup
+	public void setUp() throws IOException {
+		mEngine = new GameEngine(BenchLevels.shippedLevels(), boardSize,
+				boardSize, BenchLevels.SEED);
+		mPilot = new Autopilot();
+		mEngine.newGame();
+		mEngine.setMode(GameEngine.RUNNING);
+	}
+
+	@Benchmark
+	public int pilotedStep() {
+		int outcome = mEngine.step(mPilot.nextInput(mEngine));
+		if (outcome != GameEngine.RUNNING) {
+			if (outcome == GameEngine.GAMEOVER) {
+				mEngine.setMode(GameEngine.READY);
+			}
+			mEngine.newGame();
+			mEngine.setMode(GameEngine.RUNNING);
+		}
+		return outcome;
+	}
+
+}
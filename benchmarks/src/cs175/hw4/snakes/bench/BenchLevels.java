@@ -0,0 +1,150 @@
+package cs175.hw4.snakes.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import cs175.hw4.snakes.GameEngine;
+import cs175.hw4.snakes.Level;
+import cs175.hw4.snakes.LevelPack;
+
+/**
+ * BenchLevels: boards and snakes shared by the benchmarks. Everything random
+ * is seeded with SEED so runs can be compared with each other.
+ *
+ * The benchmarks are JMH benchmarks over the game's plain Java classes.
+ * benchmarks/pom.xml builds them together with those classes into one jar;
+ * run it from the project directory:
+ *
+ * <pre>
+ * mvn -f benchmarks/pom.xml package
+ * java -jar benchmarks/target/benchmarks.jar
+ * </pre>
+ */
+public final class BenchLevels {
+
+	public static final long SEED = 20141118L;
+
+	/**
+	 * Level pack the wall benchmarks compile, relative to the project
+	 * directory unless overridden with -Dsnake.levels=...
+	 */
+	public static final String LEVEL_PACK = System.getProperty(
+			"snake.levels", "assets/levels.pack");
+
+	private BenchLevels() {
+	}
+
+	/**
+	 * @return the levels shipped with the game
+	 */
+	public static LevelPack shippedLevels() throws IOException {
+		InputStream in = new FileInputStream(LEVEL_PACK);
+		try {
+			return LevelPack.read(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * @return the levels of a pack with the given number of apples on each,
+	 *         for runs that must eat and place apples
+	 */
+	public static LevelPack withApples(LevelPack levels, int appleCount)
+			throws IOException {
+		Level[] changed = new Level[levels.getLevelCount()];
+		for (int i = 0; i < changed.length; i++) {
+			Level level = levels.getLevel(i);
+			changed[i] = new Level(level.getMoveDelay(), appleCount,
+					level.getStartX(), level.getStartY(),
+					level.getStartLength(), level.getStartDirection(),
+					level.getExitX(), level.getExitY(), level.getRects());
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		LevelPack.write(changed, out);
+		return new LevelPack(out.toByteArray());
+	}
+
+	/**
+	 * @return a pack with one level: a closed border and nothing inside it,
+	 *         with the snake starting in the top left corner heading east
+	 */
+	public static LevelPack openBoard() throws IOException {
+		int start = Level.coord(Level.ANCHOR_START, 0);
+		int end = Level.coord(Level.ANCHOR_END, 0);
+		int one = Level.coord(Level.ANCHOR_START, 1);
+		int endLess1 = Level.coord(Level.ANCHOR_END, -1);
+		int[] rects = {
+				Level.RECT_WALL, start, start, end, one,
+				Level.RECT_WALL, start, endLess1, end, end,
+				Level.RECT_WALL, start, one, one, endLess1,
+				Level.RECT_WALL, endLess1, one, end, endLess1 };
+		// the exit lies beyond the border, out of reach
+		Level level = new Level(100, 0, one, one, 1, GameEngine.EAST,
+				Level.coord(Level.ANCHOR_END, 1), one, rects);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		LevelPack.write(new Level[] { level }, out);
+		return new LevelPack(out.toByteArray());
+	}
+
+	/**
+	 * Lays out a snake on an open board: the head in the top left corner of
+	 * the inside of the border, the rest of the body filling rows from the
+	 * bottom up.
+	 *
+	 * @return the snake as [x1,y1,x2,y2,...], head first
+	 */
+	public static int[] coil(int xTileCount, int yTileCount, int length) {
+		int[] snake = new int[length * 2];
+		snake[0] = 1;
+		snake[1] = 1;
+		int width = xTileCount - 2;
+		for (int i = 1; i < length; i++) {
+			int row = (i - 1) / width;
+			int column = (i - 1) % width;
+			snake[2 * i] = 1 + (row % 2 == 0 ? column : width - 1 - column);
+			snake[2 * i + 1] = yTileCount - 2 - row;
+		}
+		return snake;
+	}
+
+	/**
+	 * @return how many moves the head of a coil() snake can make sweeping the
+	 *         free rows with sweepInput() before it runs into its body
+	 */
+	public static int sweepMoves(int xTileCount, int yTileCount, int length) {
+		int width = xTileCount - 2;
+		int bodyRows = (length - 1 + width - 1) / width;
+		int freeRows = yTileCount - 2 - bodyRows;
+		if (freeRows < 1) {
+			throw new IllegalArgumentException("snake of length " + length
+					+ " does not fit a " + xTileCount + "x" + yTileCount
+					+ " board");
+		}
+		return freeRows * width - 1;
+	}
+
+	/**
+	 * Steers the snake back and forth across the board, one row further down
+	 * at each side.
+	 *
+	 * @return the input for the next step
+	 */
+	public static int sweepInput(GameEngine engine) {
+		int x = engine.getSnakeX(0);
+		int right = engine.getXTileCount() - 2;
+		int direction = engine.getDirection();
+		if (direction == GameEngine.EAST && x == right)
+			return GameEngine.INPUT_RIGHT;
+		if (direction == GameEngine.WEST && x == 1)
+			return GameEngine.INPUT_LEFT;
+		if (direction == GameEngine.SOUTH)
+			return x == right ? GameEngine.INPUT_RIGHT : GameEngine.INPUT_LEFT;
+		return GameEngine.INPUT_NONE;
+	}
+
+}
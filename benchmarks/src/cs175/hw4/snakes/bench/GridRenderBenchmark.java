@@ -0,0 +1,119 @@
+package cs175.hw4.snakes.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cs175.hw4.snakes.TileGrid;
+
+/**
+ * GridRenderBenchmark: TileView's tile walk, done by TileGrid, on a world
+ * larger than the view. fullFrame() paints every tile the camera sees, as
+ * onDraw() does after the camera moved; dirtyTiles() changes the tiles of one
+ * move and paints the ones in view, as invalidateTiles() and the redraw of
+ * their areas do. A desktop JVM has no Canvas, so the painter copies each
+ * tile into an int framebuffer pixel by pixel instead of drawing a bitmap.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GridRenderBenchmark {
+
+	private static final int TILE_SIZE = 8;
+	private static final int VIEW_TILES = 40;
+
+	/**
+	 * Tiles changed by one move: the new head, the old head and the old tail.
+	 */
+	private static final int DIRTY_TILES = 3;
+
+	private static final int HEAD = 1;
+	private static final int BODY = 2;
+
+	@Param({ "40", "200", "1000" })
+	public int worldSize;
+
+	@Param({ "10", "100", "1000" })
+	public int snakeLength;
+
+	private final TileGrid mGrid = new TileGrid();
+	private int[] mSnake;
+	private int mNextDirty;
+
+	private int[][] mTilePixels;
+	private int[] mFrame;
+	private int mFrameWidth;
+
+	private final TileGrid.Painter mPainter = new TileGrid.Painter() {
+
+		@Override
+		public void paintTile(int tile, int x, int y) {
+			int[] pixels = mTilePixels[tile];
+			int row = y * TILE_SIZE * mFrameWidth + x * TILE_SIZE;
+			for (int i = 0; i < TILE_SIZE; i++) {
+				System.arraycopy(pixels, i * TILE_SIZE, mFrame, row, TILE_SIZE);
+				row += mFrameWidth;
+			}
+		}
+	};
+
+	@Setup
+	public void setUp() {
+		int viewTiles = Math.min(VIEW_TILES, worldSize);
+		mGrid.resize(worldSize, worldSize, viewTiles, viewTiles);
+		mSnake = BenchLevels.coil(worldSize, worldSize, snakeLength);
+		for (int i = 0; i < snakeLength; i++) {
+			mGrid.set(i == 0 ? HEAD : BODY, mSnake[2 * i], mSnake[2 * i + 1]);
+		}
+		// the body coils up from the bottom; look at its end
+		mGrid.followCamera(mSnake[2 * snakeLength - 2],
+				mSnake[2 * snakeLength - 1]);
+		mGrid.markDrawn(mPainter);
+
+		mTilePixels = new int[3][TILE_SIZE * TILE_SIZE];
+		for (int tile = 1; tile < mTilePixels.length; tile++) {
+			for (int i = 0; i < TILE_SIZE * TILE_SIZE; i++) {
+				mTilePixels[tile][i] = 0xff000000 | (tile * 0x3f3f3f + i);
+			}
+		}
+		mFrameWidth = viewTiles * TILE_SIZE;
+		mFrame = new int[mFrameWidth * mFrameWidth];
+	}
+
+	@Benchmark
+	public int[] fullFrame() {
+		mGrid.paint(mGrid.getCameraX(), mGrid.getCameraY(), 0, 0, VIEW_TILES,
+				VIEW_TILES, mPainter);
+		return mFrame;
+	}
+
+	/**
+	 * Flips DIRTY_TILES body tiles between head and body, so each call
+	 * changes as many tiles as a move does, and paints them.
+	 */
+	@Benchmark
+	public int[] dirtyTiles() {
+		for (int i = 0; i < DIRTY_TILES; i++) {
+			int x = mSnake[2 * mNextDirty];
+			int y = mSnake[2 * mNextDirty + 1];
+			mGrid.set(mGrid.get(x, y) == BODY ? HEAD : BODY, x, y);
+			mNextDirty = (mNextDirty + 1) % snakeLength;
+		}
+		mGrid.markDrawn(mPainter);
+		return mFrame;
+	}
+
+}
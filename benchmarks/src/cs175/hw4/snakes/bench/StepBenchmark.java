@@ -0,0 +1,74 @@
+package cs175.hw4.snakes.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cs175.hw4.snakes.GameEngine;
+
+/**
+ * StepBenchmark: one GameEngine.step() on an open board. The snake sweeps the
+ * free rows above its coiled body, growing on every move as in the game, and
+ * is put back to its starting position before it would run into itself. The
+ * restart happens inside the measured step, as in AutopilotBenchmark, and
+ * rebuilds the whole board, but it comes once per sweep of the free rows, so
+ * its share of a step is small.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StepBenchmark {
+
+	@Param({ "40", "100", "200" })
+	public int boardSize;
+
+	@Param({ "10", "100", "1000" })
+	public int snakeLength;
+
+	private GameEngine mEngine;
+	private int[] mStartSnake;
+	private int mSweepMoves;
+	private int mMovesLeft;
+
+	@Setup
+	public void setUp() throws IOException {
+		mEngine = new GameEngine(BenchLevels.openBoard(), boardSize,
+				boardSize, BenchLevels.SEED);
+		mStartSnake = BenchLevels.coil(boardSize, boardSize, snakeLength);
+		mSweepMoves = BenchLevels.sweepMoves(boardSize, boardSize,
+				snakeLength);
+	}
+
+	@Setup(Level.Iteration)
+	public void restart() {
+		mEngine.restore(new int[0], mStartSnake, GameEngine.EAST,
+				GameEngine.EAST, 100, 0);
+		mEngine.setMode(GameEngine.RUNNING);
+		mMovesLeft = mSweepMoves;
+	}
+
+	@Benchmark
+	public int step() {
+		int outcome = mEngine.step(BenchLevels.sweepInput(mEngine));
+		if (--mMovesLeft == 0 || outcome != GameEngine.RUNNING) {
+			restart();
+		}
+		return outcome;
+	}
+
+}
@@ -0,0 +1,187 @@
+package cs175.hw4.snakes.bench;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import cs175.hw4.snakes.Autopilot;
+import cs175.hw4.snakes.FrameStats;
+import cs175.hw4.snakes.GameEngine;
+import cs175.hw4.snakes.InputQueue;
+import cs175.hw4.snakes.ReplayRecorder;
+import cs175.hw4.snakes.Trace;
+
+/**
+ * TickAllocationCheck: guards the running game against allocating. It plays
+ * the game's own levels, with APPLES apples on each so apples are eaten and
+ * placed, through the same work a tick does on the game loop thread: taking
+ * a queued turn or asking the Autopilot, recording the turn, stepping the
+ * engine, and recording timings and trace events. The bytes the thread
+ * allocated are read from its allocation counter around every tick. Left out
+ * are what happens between ticks, making room for the next step as SnakeView
+ * does, and finishing a game's replay and starting the next game. After a
+ * warmup, each of PASSES passes is measured on its own, and the check exits
+ * with status 1 if the ticks of any pass allocated anything.
+ *
+ * While the JIT is still recompiling the code the ticks run, the JVM itself
+ * now and then allocates a few bytes on the thread. The warmup therefore
+ * goes on until a whole pass allocates nothing. Garbage made by the game
+ * would show up in every pass, so the check fails if that does not happen
+ * within WARMUP_PASSES.
+ *
+ * Run it from the project directory after building the benchmarks:
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar \
+ *     cs175.hw4.snakes.bench.TickAllocationCheck [ticks] [boardSize]
+ * </pre>
+ */
+public final class TickAllocationCheck {
+
+	private final GameEngine mEngine;
+	private final Autopilot mPilot = new Autopilot();
+	private final InputQueue mInputs = new InputQueue();
+	private final ReplayRecorder mRecorder = new ReplayRecorder();
+	private final FrameStats mFrameStats = new FrameStats();
+	private final Random mRandom = new Random(BenchLevels.SEED);
+
+	private static final int APPLES = 5;
+	private static final int PASSES = 3;
+	private static final int WARMUP_PASSES = 5;
+
+	private final com.sun.management.ThreadMXBean mThreads;
+	private final long mThreadId = Thread.currentThread().getId();
+
+	/**
+	 * mReadCost: what reading the allocation counter allocates itself. The
+	 * counter is read for a single thread; the form taking an array of
+	 * threads allocates its result unless the JIT has optimized that away,
+	 * so its cost varies from read to read.
+	 */
+	private long mReadCost;
+
+	private TickAllocationCheck(int boardSize) throws IOException {
+		mEngine = new GameEngine(BenchLevels.withApples(
+				BenchLevels.shippedLevels(), APPLES), boardSize, boardSize,
+				BenchLevels.SEED);
+		mThreads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		mThreads.setThreadAllocatedMemoryEnabled(true);
+		startGame(false);
+	}
+
+	public static void main(String[] args) throws IOException {
+		int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		int boardSize = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+
+		Trace.setLevel(Trace.DEBUG);
+		TickAllocationCheck check = new TickAllocationCheck(boardSize);
+		check.measureReadCost();
+		int warmup = 1;
+		while (check.play(ticks)[0] > 0) {
+			if (warmup++ == WARMUP_PASSES) {
+				System.out.println("FAIL: the ticks allocate in every pass");
+				System.exit(1);
+			}
+		}
+		boolean clean = true;
+		for (int pass = 0; pass < PASSES; pass++) {
+			long[] result = check.play(ticks);
+			long bytes = result[0];
+			long measured = result[1];
+
+			System.out.println(measured + " ticks on " + boardSize + "x"
+					+ boardSize + " allocated " + bytes + " bytes, "
+					+ (double) bytes / measured + " per tick");
+			if (bytes > 0) {
+				clean = false;
+			}
+		}
+		if (!clean) {
+			System.out.println("FAIL: a running tick allocates");
+			System.exit(1);
+		}
+	}
+
+	private void measureReadCost() {
+		long cost = Long.MAX_VALUE;
+		for (int i = 0; i < 1000; i++) {
+			long before = allocated();
+			cost = Math.min(cost, allocated() - before);
+		}
+		mReadCost = cost;
+	}
+
+	private long allocated() {
+		return mThreads.getThreadAllocatedBytes(mThreadId);
+	}
+
+	/**
+	 * Plays the given number of ticks.
+	 *
+	 * @return the bytes allocated by the ticks, and the number of ticks
+	 *         measured
+	 */
+	private long[] play(int ticks) {
+		long bytes = 0;
+		for (int played = 0; played < ticks; played++) {
+			mEngine.prepareStep();
+			mRecorder.prepareTurn();
+			long before = allocated();
+			int outcome = tick();
+			bytes += Math.max(0, allocated() - before - mReadCost);
+			if (outcome != GameEngine.RUNNING) {
+				mRecorder.end(outcome);
+				startGame(outcome == GameEngine.GAMEOVER);
+			}
+		}
+		return new long[] { bytes, ticks };
+	}
+
+	/**
+	 * Does what SnakeView's tick does apart from drawing. Now and then the
+	 * player turns, on its own or twice in a row, and the Autopilot steers
+	 * in between.
+	 *
+	 * @return the mode the step left the game in
+	 */
+	private int tick() {
+		long start = System.nanoTime();
+		mFrameStats.recordLateness(0);
+		int chance = mRandom.nextInt(64);
+		if (chance < 2) {
+			mInputs.offer(GameEngine.INPUT_LEFT, start);
+			if (chance == 0) {
+				mInputs.offer(GameEngine.INPUT_RIGHT, start);
+			}
+			if (Trace.ENABLED)
+				Trace.event(Trace.DEBUG, Trace.TURN, GameEngine.INPUT_LEFT, 1);
+		}
+
+		int input = mInputs.poll();
+		if (input != GameEngine.INPUT_NONE) {
+			mFrameStats.recordInputLatency(System.nanoTime()
+					- mInputs.getPolledTime());
+		} else {
+			input = mPilot.nextInput(mEngine);
+		}
+		mRecorder.turn(input);
+		int outcome = mEngine.step(input);
+		mFrameStats.recordUpdate(System.nanoTime() - start);
+		return outcome;
+	}
+
+	private void startGame(boolean gameOver) {
+		if (gameOver) {
+			mEngine.setMode(GameEngine.READY);
+		}
+		mEngine.newGame();
+		mRecorder.begin(mEngine);
+		mInputs.clear();
+		mEngine.setMode(GameEngine.RUNNING);
+		if (Trace.ENABLED)
+			Trace.event(Trace.INFO, Trace.MODE, GameEngine.READY,
+					GameEngine.RUNNING);
+	}
+
+}
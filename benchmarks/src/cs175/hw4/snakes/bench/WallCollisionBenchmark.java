@@ -0,0 +1,72 @@
+package cs175.hw4.snakes.bench;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cs175.hw4.snakes.LevelPack;
+import cs175.hw4.snakes.Walls;
+
+/**
+ * WallCollisionBenchmark: Walls.getWall() for the game's own levels, looked up
+ * at random cells of the board and just outside it. The cost is reported per
+ * lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WallCollisionBenchmark {
+
+	private static final int LOOKUPS = 4096;
+
+	@Param({ "40", "100", "200" })
+	public int boardSize;
+
+	@Param({ "0", "1", "2" })
+	public int level;
+
+	private Walls mWalls;
+	private final int[] mXs = new int[LOOKUPS];
+	private final int[] mYs = new int[LOOKUPS];
+
+	@Setup
+	public void setUp() throws IOException {
+		LevelPack levels = BenchLevels.shippedLevels();
+		mWalls = Walls.compile(levels.getLevel(level), boardSize, boardSize);
+
+		Random random = new Random(BenchLevels.SEED);
+		for (int i = 0; i < LOOKUPS; i++) {
+			mXs[i] = random.nextInt(boardSize + 2) - 1;
+			mYs[i] = random.nextInt(boardSize + 2) - 1;
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public int getWall() {
+		int hits = 0;
+		for (int i = 0; i < LOOKUPS; i++) {
+			if (mWalls.getWall(mXs[i], mYs[i])) {
+				hits++;
+			}
+		}
+		return hits;
+	}
+
+}
@@ -0,0 +1,80 @@
+package cs175.hw4.snakes;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * Checks FreeCells against a sorted set of the same cells: membership, size
+ * and the random pick, which must be the k-th free cell in board order.
+ */
+public class FreeCellsTest {
+
+	/**
+	 * Several chunks, the last one partly used
+	 */
+	private static final int CELLS = 5000;
+
+	@Test
+	public void matchesSortedSet() {
+		FreeCells cells = new FreeCells();
+		cells.reset(CELLS);
+		TreeSet<Integer> reference = new TreeSet<Integer>();
+		Random random = new Random(1);
+		for (int op = 0; op < 100000; op++) {
+			int cell = random.nextInt(CELLS);
+			if (random.nextBoolean()) {
+				cells.add(cell);
+				reference.add(cell);
+			} else {
+				cells.remove(cell);
+				reference.remove(cell);
+			}
+			assertEquals(reference.contains(cell), cells.contains(cell));
+			assertEquals(reference.size(), cells.size());
+			if (op % 100 == 0) {
+				checkRandom(cells, reference, random.nextLong());
+			}
+		}
+	}
+
+	@Test
+	public void resetEmpties() {
+		FreeCells cells = new FreeCells();
+		cells.reset(CELLS);
+		for (int cell = 0; cell < CELLS; cell += 7) {
+			cells.add(cell);
+		}
+		cells.reset(CELLS);
+		assertEquals(0, cells.size());
+		assertEquals(-1, cells.random(new Random(1)));
+		cells.add(CELLS - 1);
+		assertEquals(CELLS - 1, cells.random(new Random(1)));
+	}
+
+	/**
+	 * Picks with two generators from the same seed: one through FreeCells,
+	 * one indexing the sorted cells.
+	 */
+	private static void checkRandom(FreeCells cells,
+			TreeSet<Integer> reference, long seed) {
+		Random picks = new Random(seed);
+		Random expected = new Random(seed);
+		List<Integer> sorted = new ArrayList<Integer>(reference);
+		for (int i = 0; i < 10; i++) {
+			int cell = cells.random(picks);
+			if (sorted.isEmpty()) {
+				assertEquals(-1, cell);
+			} else {
+				assertEquals(sorted.get(expected.nextInt(sorted.size()))
+						.intValue(), cell);
+			}
+		}
+	}
+
+}
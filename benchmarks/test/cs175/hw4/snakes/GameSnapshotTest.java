@@ -0,0 +1,102 @@
+package cs175.hw4.snakes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cs175.hw4.snakes.bench.BenchLevels;
+
+/**
+ * Saves games in the middle and checks that the restored game is the same,
+ * down to the state of the random numbers placing the apples.
+ */
+public class GameSnapshotTest {
+
+	private static final int GAMES = 300;
+	private static final int APPLES = 5;
+
+	private LevelPack mLevels;
+
+	@Before
+	public void setUp() throws IOException {
+		mLevels = BenchLevels.withApples(BenchLevels.openBoard(), APPLES);
+	}
+
+	@Test
+	public void restoredGameGoesOnTheSame() throws IOException {
+		Random random = new Random(BenchLevels.SEED);
+		for (int game = 0; game < GAMES; game++) {
+			GameEngine original = new GameEngine(mLevels, 30, 20, game);
+			original.newGame();
+			original.setMode(GameEngine.RUNNING);
+			int outcome = GameEngine.RUNNING;
+			int steps = random.nextInt(40);
+			for (int i = 0; i < steps && outcome == GameEngine.RUNNING; i++) {
+				outcome = original.step(randomInput(random));
+			}
+			if (outcome != GameEngine.RUNNING)
+				continue;
+
+			// a restored game is left paused
+			original.setMode(GameEngine.PAUSE);
+			byte[] saved = GameSnapshot.toBytes(original);
+			GameEngine restored = new GameEngine(mLevels, 0, 0);
+			GameSnapshot.restore(restored, saved);
+			assertArrayEquals("game " + game, saved,
+					GameSnapshot.toBytes(restored));
+
+			original.setMode(GameEngine.RUNNING);
+			restored.setMode(GameEngine.RUNNING);
+			do {
+				int input = randomInput(random);
+				outcome = original.step(input);
+				assertEquals(outcome, restored.step(input));
+				assertEquals(original.getLastApple(), restored.getLastApple());
+				assertEquals(original.getScore(), restored.getScore());
+			} while (outcome == GameEngine.RUNNING);
+			assertArrayEquals(GameSnapshot.toBytes(original),
+					GameSnapshot.toBytes(restored));
+		}
+	}
+
+	@Test
+	public void randomStateCarriesOver() {
+		GameRandom random = new GameRandom();
+		random.setSeed(BenchLevels.SEED);
+		Random reference = new Random(BenchLevels.SEED);
+		for (int i = 0; i < 100; i++) {
+			assertEquals(reference.nextInt(1000), random.nextInt(1000));
+		}
+
+		GameRandom copy = new GameRandom();
+		copy.setState(random.getState());
+		for (int i = 0; i < 100; i++) {
+			assertEquals(random.nextInt(1000), copy.nextInt(1000));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void badDirectionIsRejected() throws IOException {
+		GameEngine engine = new GameEngine(mLevels, 30, 20, BenchLevels.SEED);
+		engine.newGame();
+		ByteBuffer snapshot = ByteBuffer.allocate(engine.getSnapshotSize());
+		engine.writeSnapshot(snapshot);
+		// after the board size and the mode
+		snapshot.put(5, (byte) 0);
+		snapshot.rewind();
+		new GameEngine(mLevels, 0, 0).readSnapshot(snapshot);
+	}
+
+	private static int randomInput(Random random) {
+		int chance = random.nextInt(8);
+		return chance == 0 ? GameEngine.INPUT_LEFT
+				: chance == 1 ? GameEngine.INPUT_RIGHT : GameEngine.INPUT_NONE;
+	}
+
+}
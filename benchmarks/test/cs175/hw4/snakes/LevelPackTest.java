@@ -0,0 +1,68 @@
+package cs175.hw4.snakes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import cs175.hw4.snakes.bench.BenchLevels;
+
+/**
+ * Writes level packs and reads them back, whole, cut short and with a level
+ * offset pointing past the end.
+ */
+public class LevelPackTest {
+
+	@Test
+	public void levelsComeBack() throws IOException {
+		LevelPack pack = BenchLevels.withApples(BenchLevels.openBoard(), 3);
+		LevelPack copy = new LevelPack(toBytes(pack));
+		assertEquals(pack.getLevelCount(), copy.getLevelCount());
+		for (int i = 0; i < pack.getLevelCount(); i++) {
+			Level level = pack.getLevel(i);
+			Level read = copy.getLevel(i);
+			assertEquals(3, read.getAppleCount());
+			assertEquals(level.getStartX(), read.getStartX());
+			assertEquals(level.getStartDirection(), read.getStartDirection());
+			assertEquals(level.getExitX(), read.getExitX());
+			assertArrayEquals(level.getRects(), read.getRects());
+		}
+	}
+
+	@Test
+	public void truncatedPackIsRejected() throws IOException {
+		byte[] data = toBytes(BenchLevels.openBoard());
+		for (int length = 0; length < data.length; length++) {
+			try {
+				new LevelPack(Arrays.copyOf(data, length));
+				fail("accepted a pack cut to " + length + " bytes");
+			} catch (IOException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void offsetPastTheEndIsRejected() throws IOException {
+		byte[] data = toBytes(BenchLevels.openBoard());
+		// the first level's offset, after the magic, version and count
+		data[8] = 0x7f;
+		new LevelPack(data);
+	}
+
+	private static byte[] toBytes(LevelPack pack) throws IOException {
+		Level[] levels = new Level[pack.getLevelCount()];
+		for (int i = 0; i < levels.length; i++) {
+			levels[i] = pack.getLevel(i);
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		LevelPack.write(levels, out);
+		return out.toByteArray();
+	}
+
+}
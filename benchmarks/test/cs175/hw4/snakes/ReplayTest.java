@@ -0,0 +1,94 @@
+package cs175.hw4.snakes;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cs175.hw4.snakes.bench.BenchLevels;
+
+/**
+ * Records games the way SnakeView does and checks that Replayer plays them
+ * back to the same end, after a trip through the replay's bytes.
+ */
+public class ReplayTest {
+
+	private static final int GAMES = 300;
+	private static final int APPLES = 5;
+
+	private LevelPack mLevels;
+	private GameEngine mEngine;
+	private final ReplayRecorder mRecorder = new ReplayRecorder();
+	private final Random mTurns = new Random(BenchLevels.SEED);
+	private int mApplesEaten;
+
+	@Before
+	public void setUp() throws IOException {
+		mLevels = BenchLevels.withApples(BenchLevels.openBoard(), APPLES);
+		mEngine = new GameEngine(mLevels, 30, 20, BenchLevels.SEED);
+	}
+
+	@Test
+	public void recordedGamesReplay() throws IOException {
+		Replayer replayer = new Replayer(mLevels);
+		for (int game = 0; game < GAMES; game++) {
+			Replay replay = Replay.fromBytes(playGame().toBytes());
+			assertTrue("game " + game + " replayed differently",
+					replayer.verify(replay));
+		}
+		assertTrue("no apple was eaten", mApplesEaten > 0);
+	}
+
+	@Test
+	public void changedScoreFailsVerify() {
+		Replay replay = playGame();
+		int count = replay.getInputCount();
+		int[] ticks = new int[count];
+		int[] inputs = new int[count];
+		for (int i = 0; i < count; i++) {
+			ticks[i] = replay.getInputTick(i);
+			inputs[i] = replay.getInput(i);
+		}
+		Replay changed = new Replay(replay.getXTileCount(),
+				replay.getYTileCount(), replay.getLevel(), replay.getLives(),
+				replay.getScore(), replay.getSeed(), ticks, inputs,
+				replay.getEndTick(), replay.getEndMode(),
+				replay.getEndScore() + 1);
+		assertTrue(new Replayer(mLevels).verify(replay));
+		assertFalse(new Replayer(mLevels).verify(changed));
+	}
+
+	/**
+	 * Plays a game to its end with random turns, recording it.
+	 */
+	private Replay playGame() {
+		if (mEngine.getMode() == GameEngine.GAMEOVER) {
+			mEngine.setMode(GameEngine.READY);
+		}
+		mEngine.newGame();
+		mRecorder.begin(mEngine);
+		mEngine.setMode(GameEngine.RUNNING);
+		int outcome;
+		do {
+			mEngine.prepareStep();
+			mRecorder.prepareTurn();
+			int input = GameEngine.INPUT_NONE;
+			if (mTurns.nextInt(4) == 0) {
+				input = mTurns.nextBoolean() ? GameEngine.INPUT_LEFT
+						: GameEngine.INPUT_RIGHT;
+			}
+			mRecorder.turn(input);
+			long score = mEngine.getScore();
+			outcome = mEngine.step(input);
+			if (mEngine.getScore() > score && outcome == GameEngine.RUNNING) {
+				mApplesEaten++;
+			}
+		} while (outcome == GameEngine.RUNNING);
+		return mRecorder.end(outcome);
+	}
+
+}
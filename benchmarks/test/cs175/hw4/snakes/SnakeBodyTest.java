@@ -0,0 +1,75 @@
+package cs175.hw4.snakes;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks SnakeBody's ring buffer against an ArrayDeque, while the head wraps
+ * around the end of the buffer and while the buffer grows.
+ */
+public class SnakeBodyTest {
+
+	@Test
+	public void headWrapsAround() {
+		SnakeBody body = new SnakeBody(8);
+		ArrayDeque<Integer> reference = new ArrayDeque<Integer>();
+		for (int cell = 0; cell < 5; cell++) {
+			body.pushTail(cell);
+			reference.addLast(cell);
+		}
+		// moving without growing takes the head around the buffer many times
+		for (int cell = 5; cell < 100; cell++) {
+			body.pushHead(cell);
+			reference.addFirst(cell);
+			assertEquals(reference.removeLast().intValue(), body.popTail());
+			check(reference, body);
+		}
+	}
+
+	@Test
+	public void growsWhileWrapped() {
+		SnakeBody body = new SnakeBody(8);
+		ArrayDeque<Integer> reference = new ArrayDeque<Integer>();
+		Random random = new Random(1);
+		for (int cell = 0; cell < 10000; cell++) {
+			body.pushHead(cell);
+			reference.addFirst(cell);
+			// grow two steps out of three, so the body doubles again and
+			// again with its head anywhere in the buffer
+			if (reference.size() > 1 && random.nextInt(3) == 0) {
+				assertEquals(reference.removeLast().intValue(), body.popTail());
+			}
+			check(reference, body);
+		}
+	}
+
+	@Test
+	public void reserveKeepsBody() {
+		SnakeBody body = new SnakeBody(8);
+		ArrayDeque<Integer> reference = new ArrayDeque<Integer>();
+		for (int cell = 0; cell < 6; cell++) {
+			body.pushHead(cell);
+			reference.addFirst(cell);
+		}
+		body.popTail();
+		reference.removeLast();
+		body.reserve(100);
+		check(reference, body);
+	}
+
+	private static void check(ArrayDeque<Integer> reference, SnakeBody body) {
+		assertEquals(reference.size(), body.size());
+		assertEquals(reference.getFirst().intValue(), body.head());
+		assertEquals(reference.getLast().intValue(), body.tail());
+		Iterator<Integer> cells = reference.iterator();
+		for (int index = 0; index < body.size(); index++) {
+			assertEquals(cells.next().intValue(), body.get(index));
+		}
+	}
+
+}
@@ -77,15 +77,13 @@ containing a value of this type.
     public static final class id {
         public static final int HigestScore=0x7f060009;
         public static final int ScoreLevel=0x7f060008;
+        public static final int arena=0x7f06000a;
         public static final int arrowContainer=0x7f060003;
         public static final int background=0x7f060000;
         public static final int imageDown=0x7f060007;
         public static final int imageLeft=0x7f060005;
         public static final int imageRight=0x7f060006;
         public static final int imageUp=0x7f060004;
-        public static final int level=0x7f06000b;
-        public static final int lives=0x7f06000a;
-        public static final int scores=0x7f06000c;
         public static final int snake=0x7f060001;
         public static final int text=0x7f060002;
     }
@@ -97,6 +95,7 @@ containing a value of this type.
         public static final int HigestScore=0x7f050007;
         public static final int ScoreLevel=0x7f050008;
         public static final int app_name=0x7f050000;
+        public static final int arena=0x7f05000a;
         public static final int mode_lose=0x7f050002;
         public static final int mode_pause=0x7f050003;
         public static final int mode_ready=0x7f050001;
@@ -0,0 +1,489 @@
+package cs175.hw4.snakes;
+
+import java.util.Random;
+
+/**
+ * Arena: many snakes, players and bots, on one board. All snakes share one
+ * occupancy grid holding for every cell the snake covering it, a wall or an
+ * apple, so a head moving into another snake's body is found with a single
+ * lookup whatever the snakes' lengths. Heads meeting on the same cell are
+ * found through a second grid the heads claim their cells in, stamped with
+ * the tick so it never needs clearing. A tick is O(number of snakes), plus
+ * the length of the snakes that die.
+ *
+ * Unlike the single player game, arena snakes only grow by eating apples.
+ * Snakes that die leave the board; with respawning on they come back the
+ * next tick somewhere free.
+ */
+public class Arena {
+
+	/**
+	 * Contents of a cell other than a snake; snakes are stored as their id
+	 * plus one.
+	 */
+	public static final int EMPTY = 0;
+	public static final int WALL = -1;
+	public static final int APPLE = -2;
+
+	/**
+	 * Attempts at finding a free spot for a new snake before giving up.
+	 */
+	private static final int SPAWN_ATTEMPTS = 16;
+
+	/**
+	 * Bots turn at random once in this many moves, to spread out.
+	 */
+	private static final int BOT_WANDER = 8;
+
+	private final int mXTileCount;
+	private final int mYTileCount;
+	private final Random mRandom;
+	private final int mAppleCount;
+
+	/**
+	 * mOwner: per cell EMPTY, WALL, APPLE or the id of the snake plus one.
+	 * mFreeCells: the EMPTY cells, to place apples and snakes on.
+	 */
+	private final int[] mOwner;
+	private final FreeCells mFreeCells = new FreeCells();
+
+	/**
+	 * mClaim: per cell the snake whose head moves there this tick, valid
+	 * where mClaimTick holds the tick.
+	 */
+	private final int[] mClaim;
+	private final int[] mClaimTick;
+
+	/**
+	 * The snakes, indexed by id.
+	 */
+	private SnakeBody[] mBodies = new SnakeBody[0];
+	private int[] mDirection = new int[0];
+	private int[] mInput = new int[0];
+	private int[] mGrow = new int[0];
+	private long[] mScore = new long[0];
+	private int[] mStartLength = new int[0];
+	private int[] mNextHead = new int[0];
+	private boolean[] mBot = new boolean[0];
+	private boolean[] mAlive = new boolean[0];
+	private boolean[] mDying = new boolean[0];
+	private int mSnakeCount;
+	private int mAliveCount;
+
+	private int mTick;
+	private boolean mRespawn;
+
+	/**
+	 * @param walls
+	 *            the board and its walls
+	 * @param appleCount
+	 *            number of apples kept on the board
+	 * @param seed
+	 *            seeds where snakes and apples appear and how bots wander
+	 */
+	public Arena(Walls walls, int appleCount, long seed) {
+		mXTileCount = walls.getXMax();
+		mYTileCount = walls.getYMax();
+		mAppleCount = appleCount;
+		mRandom = new Random(seed);
+
+		int cells = mXTileCount * mYTileCount;
+		mOwner = new int[cells];
+		mClaim = new int[cells];
+		mClaimTick = new int[cells];
+		mFreeCells.reset(cells);
+		for (int y = 0; y < mYTileCount; y++) {
+			for (int x = 0; x < mXTileCount; x++) {
+				int cell = y * mXTileCount + x;
+				if (walls.getWall(x, y)) {
+					mOwner[cell] = WALL;
+				} else {
+					mFreeCells.add(cell);
+				}
+			}
+		}
+		for (int i = 0; i < appleCount; i++) {
+			addRandomApple();
+		}
+	}
+
+	public int getXTileCount() {
+		return mXTileCount;
+	}
+
+	public int getYTileCount() {
+		return mYTileCount;
+	}
+
+	/**
+	 * Brings snakes that died back the next tick.
+	 */
+	public void setRespawn(boolean respawn) {
+		mRespawn = respawn;
+	}
+
+	/**
+	 * Adds a snake at a random free spot.
+	 *
+	 * @param bot
+	 *            true for a snake steered by the arena, false for one
+	 *            steered through setInput()
+	 * @param length
+	 *            number of cells the snake starts with
+	 * @return the id of the snake, or -1 if no free spot was found
+	 */
+	public int addSnake(boolean bot, int length) {
+		if (mSnakeCount == mBodies.length) {
+			grow(Math.max(8, mSnakeCount * 2));
+		}
+		int id = mSnakeCount;
+		mBodies[id] = new SnakeBody(length * 2);
+		mBot[id] = bot;
+		mStartLength[id] = length;
+		if (!spawn(id)) {
+			mBodies[id] = null;
+			return -1;
+		}
+		mSnakeCount++;
+		return id;
+	}
+
+	/**
+	 * Turns a player's snake before its next move.
+	 *
+	 * @param input
+	 *            GameEngine.INPUT_NONE, INPUT_LEFT or INPUT_RIGHT
+	 */
+	public void setInput(int id, int input) {
+		mInput[id] = input;
+	}
+
+	/**
+	 * Moves every live snake by one cell. Tails move first, so a head may
+	 * follow a tail into the cell it leaves. A head entering a wall or a body,
+	 * or the same cell as another head, kills its snake.
+	 *
+	 * @return the number of snakes that died
+	 */
+	public int tick() {
+		mTick++;
+		if (mRespawn) {
+			for (int id = 0; id < mSnakeCount; id++) {
+				if (!mAlive[id]) {
+					spawn(id);
+				}
+			}
+		}
+
+		// choose the moves and pull in the tails
+		for (int id = 0; id < mSnakeCount; id++) {
+			if (!mAlive[id])
+				continue;
+
+			int input = mBot[id] ? steerBot(id) : mInput[id];
+			mInput[id] = GameEngine.INPUT_NONE;
+			mDirection[id] = turn(mDirection[id], input);
+			mNextHead[id] = next(mBodies[id].head(), mDirection[id]);
+
+			if (mGrow[id] > 0) {
+				mGrow[id]--;
+			} else {
+				release(mBodies[id].popTail());
+			}
+		}
+
+		// claim the cells the heads move to
+		for (int id = 0; id < mSnakeCount; id++) {
+			if (!mAlive[id])
+				continue;
+
+			int cell = mNextHead[id];
+			if (cell < 0) {
+				mDying[id] = true;
+				continue;
+			}
+			int owner = mOwner[cell];
+			mDying[id] = owner > 0 || owner == WALL;
+			if (mClaimTick[cell] == mTick) {
+				// heads meeting on one cell kill both
+				mDying[id] = true;
+				mDying[mClaim[cell]] = true;
+			} else {
+				mClaimTick[cell] = mTick;
+				mClaim[cell] = id;
+			}
+		}
+
+		// move the survivors and take the dead off the board
+		int died = 0;
+		for (int id = 0; id < mSnakeCount; id++) {
+			if (!mAlive[id])
+				continue;
+
+			if (mDying[id]) {
+				kill(id);
+				died++;
+				continue;
+			}
+			int cell = mNextHead[id];
+			if (mOwner[cell] == APPLE) {
+				mScore[id]++;
+				mGrow[id]++;
+				occupy(cell, id);
+				addRandomApple();
+			} else {
+				occupy(cell, id);
+			}
+			mBodies[id].pushHead(cell);
+		}
+		return died;
+	}
+
+	public int getTick() {
+		return mTick;
+	}
+
+	public int getSnakeCount() {
+		return mSnakeCount;
+	}
+
+	public int getAliveCount() {
+		return mAliveCount;
+	}
+
+	public boolean isAlive(int id) {
+		return mAlive[id];
+	}
+
+	public int getLength(int id) {
+		return mBodies[id].size();
+	}
+
+	/**
+	 * @return the cell of the snake's head, y * xTileCount + x
+	 */
+	public int getHead(int id) {
+		return mBodies[id].head();
+	}
+
+	public int getDirection(int id) {
+		return mDirection[id];
+	}
+
+	/**
+	 * @return the number of apples the snake has eaten
+	 */
+	public long getScore(int id) {
+		return mScore[id];
+	}
+
+	/**
+	 * @return EMPTY, WALL, APPLE or the id of the snake covering the cell
+	 *         plus one
+	 */
+	public int getOwner(int x, int y) {
+		if (x < 0 || y < 0 || x >= mXTileCount || y >= mYTileCount)
+			return WALL;
+
+		return mOwner[y * mXTileCount + x];
+	}
+
+	/**
+	 * Puts a snake on a random free spot, the body trailing in a straight
+	 * line behind the head.
+	 *
+	 * @return false if no free spot was found
+	 */
+	private boolean spawn(int id) {
+		int length = mStartLength[id];
+		for (int attempt = 0; attempt < SPAWN_ATTEMPTS; attempt++) {
+			int head = mFreeCells.random(mRandom);
+			if (head < 0)
+				return false;
+
+			int direction = GameEngine.NORTH + mRandom.nextInt(4);
+			int back = turn(turn(direction, GameEngine.INPUT_LEFT),
+					GameEngine.INPUT_LEFT);
+			// room for the body behind and one free cell ahead
+			if (!isFreeLine(next(head, direction), direction, 1)
+					|| !isFreeLine(head, back, length))
+				continue;
+
+			SnakeBody body = mBodies[id];
+			body.clear();
+			int cell = head;
+			for (int i = 0; i < length; i++) {
+				body.pushTail(cell);
+				occupy(cell, id);
+				cell = next(cell, back);
+			}
+			mDirection[id] = direction;
+			mInput[id] = GameEngine.INPUT_NONE;
+			mGrow[id] = 0;
+			mAlive[id] = true;
+			mAliveCount++;
+			return true;
+		}
+		return false;
+	}
+
+	private boolean isFreeLine(int cell, int direction, int length) {
+		for (int i = 0; i < length; i++) {
+			if (cell < 0 || mOwner[cell] != EMPTY)
+				return false;
+			cell = next(cell, direction);
+		}
+		return true;
+	}
+
+	private void kill(int id) {
+		SnakeBody body = mBodies[id];
+		while (!body.isEmpty()) {
+			release(body.popTail());
+		}
+		mAlive[id] = false;
+		mDying[id] = false;
+		mAliveCount--;
+	}
+
+	/**
+	 * Steers a bot: onto an apple next to its head if there is one, otherwise
+	 * straight on with an occasional random turn, avoiding anything deadly
+	 * right ahead. Looks at three cells only.
+	 */
+	private int steerBot(int id) {
+		int head = mBodies[id].head();
+		int direction = mDirection[id];
+		int straight = next(head, direction);
+		int left = next(head, turn(direction, GameEngine.INPUT_LEFT));
+		int right = next(head, turn(direction, GameEngine.INPUT_RIGHT));
+
+		if (isApple(straight))
+			return GameEngine.INPUT_NONE;
+		if (isApple(left))
+			return GameEngine.INPUT_LEFT;
+		if (isApple(right))
+			return GameEngine.INPUT_RIGHT;
+
+		boolean straightOpen = isOpen(straight);
+		if (straightOpen && mRandom.nextInt(BOT_WANDER) != 0)
+			return GameEngine.INPUT_NONE;
+
+		boolean leftOpen = isOpen(left);
+		boolean rightOpen = isOpen(right);
+		if (leftOpen && rightOpen)
+			return mRandom.nextBoolean() ? GameEngine.INPUT_LEFT
+					: GameEngine.INPUT_RIGHT;
+		if (leftOpen)
+			return GameEngine.INPUT_LEFT;
+		if (rightOpen)
+			return GameEngine.INPUT_RIGHT;
+		return GameEngine.INPUT_NONE;
+	}
+
+	private boolean isApple(int cell) {
+		return cell >= 0 && mOwner[cell] == APPLE;
+	}
+
+	private boolean isOpen(int cell) {
+		return cell >= 0 && mOwner[cell] <= EMPTY && mOwner[cell] != WALL;
+	}
+
+	private void occupy(int cell, int id) {
+		mOwner[cell] = id + 1;
+		mFreeCells.remove(cell);
+	}
+
+	private void release(int cell) {
+		mOwner[cell] = EMPTY;
+		mFreeCells.add(cell);
+	}
+
+	private void addRandomApple() {
+		int cell = mFreeCells.random(mRandom);
+		if (cell < 0)
+			return;
+
+		mOwner[cell] = APPLE;
+		mFreeCells.remove(cell);
+	}
+
+	/**
+	 * @return the cell one step from the given one, or -1 off the board
+	 */
+	private int next(int cell, int direction) {
+		if (cell < 0)
+			return -1;
+
+		int x = cell % mXTileCount;
+		int y = cell / mXTileCount;
+		if (direction == GameEngine.EAST) {
+			x++;
+		} else if (direction == GameEngine.WEST) {
+			x--;
+		} else if (direction == GameEngine.NORTH) {
+			y--;
+		} else {
+			y++;
+		}
+		if (x < 0 || y < 0 || x >= mXTileCount || y >= mYTileCount)
+			return -1;
+
+		return y * mXTileCount + x;
+	}
+
+	/**
+	 * @return the direction after a turn relative to the given one
+	 */
+	private static int turn(int direction, int input) {
+		if (input == GameEngine.INPUT_LEFT) {
+			if (direction == GameEngine.NORTH)
+				return GameEngine.WEST;
+			if (direction == GameEngine.WEST)
+				return GameEngine.SOUTH;
+			if (direction == GameEngine.SOUTH)
+				return GameEngine.EAST;
+			return GameEngine.NORTH;
+		}
+		if (input == GameEngine.INPUT_RIGHT) {
+			if (direction == GameEngine.NORTH)
+				return GameEngine.EAST;
+			if (direction == GameEngine.EAST)
+				return GameEngine.SOUTH;
+			if (direction == GameEngine.SOUTH)
+				return GameEngine.WEST;
+			return GameEngine.NORTH;
+		}
+		return direction;
+	}
+
+	private void grow(int capacity) {
+		SnakeBody[] bodies = new SnakeBody[capacity];
+		System.arraycopy(mBodies, 0, bodies, 0, mSnakeCount);
+		mBodies = bodies;
+		mDirection = grow(mDirection, capacity);
+		mInput = grow(mInput, capacity);
+		mGrow = grow(mGrow, capacity);
+		mStartLength = grow(mStartLength, capacity);
+		mNextHead = grow(mNextHead, capacity);
+		long[] score = new long[capacity];
+		System.arraycopy(mScore, 0, score, 0, mSnakeCount);
+		mScore = score;
+		boolean[] bot = new boolean[capacity];
+		System.arraycopy(mBot, 0, bot, 0, mSnakeCount);
+		mBot = bot;
+		boolean[] alive = new boolean[capacity];
+		System.arraycopy(mAlive, 0, alive, 0, mSnakeCount);
+		mAlive = alive;
+		boolean[] dying = new boolean[capacity];
+		System.arraycopy(mDying, 0, dying, 0, mSnakeCount);
+		mDying = dying;
+	}
+
+	private int[] grow(int[] array, int capacity) {
+		int[] grown = new int[capacity];
+		System.arraycopy(array, 0, grown, 0, mSnakeCount);
+		return grown;
+	}
+
+}
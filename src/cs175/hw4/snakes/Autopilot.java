@@ -0,0 +1,309 @@
+package cs175.hw4.snakes;
+
+/**
+ * Autopilot: steers the snake towards the nearest apple or the exit hole.
+ * It keeps a distance field, the number of moves from every tile to the
+ * nearest target around walls and the snake's body, computed by a breadth
+ * first search starting from the targets. Each tick the snake moves to the
+ * neighbouring tile closest to a target; if none can reach one it moves to
+ * the neighbour with the most room left.
+ *
+ * The search works in arrays sized to the board once and reused, and tiles
+ * are marked as visited with a generation number instead of clearing the
+ * arrays, so choosing a move allocates nothing. The arrays take 16 bytes per
+ * tile of the whole board, allocated when the first move is chosen, so a game
+ * played without the autopilot does not pay for them. As long as the snake follows
+ * the field and the targets stay where they are the field is reused: the
+ * snake only ever adds the tile it leaves, which is farther from a target
+ * than where it goes, so no shorter path ahead of it is cut off.
+ */
+public class Autopilot {
+
+	private int mXTileCount;
+	private int mYTileCount;
+
+	/**
+	 * mDistance: moves from a tile to the nearest target, valid where
+	 * mStamp holds mGeneration. mFillStamp, mFillGeneration: the same for the
+	 * flood fills measuring room.
+	 */
+	private int[] mDistance = new int[0];
+	private int[] mStamp = new int[0];
+	private int mGeneration;
+	private int[] mFillStamp = new int[0];
+	private int mFillGeneration;
+	private int[] mQueue = new int[0];
+	private final int[] mCandidates = new int[3];
+
+	/**
+	 * What the field was built for: the walls, the number of apples, and the
+	 * tile the snake's head is expected on next if it follows the field.
+	 */
+	private Walls mFieldWalls;
+	private int mFieldApples;
+	private int mExpectedHead = -1;
+
+	private int mRebuildCount;
+
+	/**
+	 * Chooses the input for the next step. Must be called while holding the
+	 * engine's lock.
+	 *
+	 * @return GameEngine.INPUT_NONE, INPUT_LEFT or INPUT_RIGHT
+	 */
+	public int nextInput(GameEngine engine) {
+		if (engine.getSnakeLength() == 0 || engine.getWalls() == null)
+			return GameEngine.INPUT_NONE;
+
+		int headX = engine.getSnakeX(0);
+		int headY = engine.getSnakeY(0);
+		if (engine.getXTileCount() != mXTileCount
+				|| engine.getYTileCount() != mYTileCount) {
+			resize(engine.getXTileCount(), engine.getYTileCount());
+		}
+		if (headY * mXTileCount + headX != mExpectedHead
+				|| engine.getWalls() != mFieldWalls
+				|| engine.getAppleCount() != mFieldApples
+				|| engine.getLastApple() >= 0) {
+			buildField(engine);
+		}
+
+		int direction = engine.getDirection();
+		int left = turnLeft(direction);
+		int right = turnRight(direction);
+
+		// straight first, so ties keep the snake going
+		int best = -1;
+		int bestDistance = Integer.MAX_VALUE;
+		int[] candidates = mCandidates;
+		candidates[0] = direction;
+		candidates[1] = left;
+		candidates[2] = right;
+		for (int i = 0; i < candidates.length; i++) {
+			int x = headX + dx(candidates[i]);
+			int y = headY + dy(candidates[i]);
+			if (x == engine.getExitX() && y == engine.getExitY()) {
+				best = candidates[i];
+				break;
+			}
+			if (!isOpen(engine, x, y))
+				continue;
+
+			int cell = y * mXTileCount + x;
+			if (mStamp[cell] == mGeneration
+					&& mDistance[cell] < bestDistance) {
+				best = candidates[i];
+				bestDistance = mDistance[cell];
+			}
+		}
+
+		if (best >= 0) {
+			mExpectedHead = (headY + dy(best)) * mXTileCount + headX
+					+ dx(best);
+		} else {
+			best = roomiest(engine, headX, headY, candidates);
+			mExpectedHead = -1;
+		}
+
+		if (best == left)
+			return GameEngine.INPUT_LEFT;
+		if (best == right)
+			return GameEngine.INPUT_RIGHT;
+		return GameEngine.INPUT_NONE;
+	}
+
+	/**
+	 * @return how often the distance field has been computed, to see how
+	 *         well it is reused
+	 */
+	public int getRebuildCount() {
+		return mRebuildCount;
+	}
+
+	private void resize(int xTileCount, int yTileCount) {
+		mXTileCount = xTileCount;
+		mYTileCount = yTileCount;
+		int cells = xTileCount * yTileCount;
+		mDistance = new int[cells];
+		mStamp = new int[cells];
+		mFillStamp = new int[cells];
+		mQueue = new int[cells];
+		mGeneration = 0;
+		mFillGeneration = 0;
+		mExpectedHead = -1;
+	}
+
+	/**
+	 * Computes the distance field from the apples and the exit hole.
+	 */
+	private void buildField(GameEngine engine) {
+		mGeneration = nextGeneration(mGeneration, mStamp);
+		mFieldWalls = engine.getWalls();
+		mFieldApples = engine.getAppleCount();
+		mRebuildCount++;
+
+		int head = 0;
+		int tail = 0;
+		for (int i = 0; i < mFieldApples; i++) {
+			tail = visit(engine.getAppleX(i), engine.getAppleY(i), 0, engine,
+					tail);
+		}
+
+		// the exit usually lies just outside the board, one move beyond
+		// the hole leading to it
+		int exitX = engine.getExitX();
+		int exitY = engine.getExitY();
+		if (exitX >= 0 && exitY >= 0 && exitX < mXTileCount
+				&& exitY < mYTileCount) {
+			tail = visit(exitX, exitY, 0, engine, tail);
+		} else {
+			tail = visit(exitX - 1, exitY, 1, engine, tail);
+			tail = visit(exitX + 1, exitY, 1, engine, tail);
+			tail = visit(exitX, exitY - 1, 1, engine, tail);
+			tail = visit(exitX, exitY + 1, 1, engine, tail);
+		}
+
+		while (head < tail) {
+			int cell = mQueue[head++];
+			int x = cell % mXTileCount;
+			int y = cell / mXTileCount;
+			int distance = mDistance[cell] + 1;
+			tail = visit(x - 1, y, distance, engine, tail);
+			tail = visit(x + 1, y, distance, engine, tail);
+			tail = visit(x, y - 1, distance, engine, tail);
+			tail = visit(x, y + 1, distance, engine, tail);
+		}
+	}
+
+	/**
+	 * Sets the distance of a tile not reached before and queues it.
+	 *
+	 * @return the new end of the queue
+	 */
+	private int visit(int x, int y, int distance, GameEngine engine, int tail) {
+		if (!isOpen(engine, x, y))
+			return tail;
+
+		int cell = y * mXTileCount + x;
+		if (mStamp[cell] == mGeneration)
+			return tail;
+
+		mStamp[cell] = mGeneration;
+		mDistance[cell] = distance;
+		mQueue[tail] = cell;
+		return tail + 1;
+	}
+
+	/**
+	 * @return the candidate direction leading into the largest open area,
+	 *         or the current direction if every one is blocked
+	 */
+	private int roomiest(GameEngine engine, int headX, int headY,
+			int[] candidates) {
+		int best = candidates[0];
+		int bestRoom = 0;
+		for (int i = 0; i < candidates.length; i++) {
+			int room = room(engine, headX + dx(candidates[i]), headY
+					+ dy(candidates[i]));
+			if (room > bestRoom) {
+				best = candidates[i];
+				bestRoom = room;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @return the number of open tiles reachable from a tile, itself
+	 *         included
+	 */
+	private int room(GameEngine engine, int x, int y) {
+		if (!isOpen(engine, x, y))
+			return 0;
+
+		mFillGeneration = nextGeneration(mFillGeneration, mFillStamp);
+		int start = y * mXTileCount + x;
+		mFillStamp[start] = mFillGeneration;
+		mQueue[0] = start;
+		int head = 0;
+		int tail = 1;
+		while (head < tail) {
+			int cell = mQueue[head++];
+			int cx = cell % mXTileCount;
+			int cy = cell / mXTileCount;
+			tail = fill(cx - 1, cy, engine, tail);
+			tail = fill(cx + 1, cy, engine, tail);
+			tail = fill(cx, cy - 1, engine, tail);
+			tail = fill(cx, cy + 1, engine, tail);
+		}
+		return tail;
+	}
+
+	private int fill(int x, int y, GameEngine engine, int tail) {
+		if (!isOpen(engine, x, y))
+			return tail;
+
+		int cell = y * mXTileCount + x;
+		if (mFillStamp[cell] == mFillGeneration)
+			return tail;
+
+		mFillStamp[cell] = mFillGeneration;
+		mQueue[tail] = cell;
+		return tail + 1;
+	}
+
+	/**
+	 * @return true for a tile on the board the snake can move onto
+	 */
+	private boolean isOpen(GameEngine engine, int x, int y) {
+		if (x < 0 || y < 0 || x >= mXTileCount || y >= mYTileCount)
+			return false;
+
+		return !engine.getWalls().getWall(x, y) && !engine.isSnake(x, y);
+	}
+
+	/**
+	 * @return the generation after the given one, clearing the stamps when
+	 *         the numbers run out
+	 */
+	private static int nextGeneration(int generation, int[] stamps) {
+		if (generation == Integer.MAX_VALUE) {
+			for (int i = 0; i < stamps.length; i++) {
+				stamps[i] = 0;
+			}
+			return 1;
+		}
+		return generation + 1;
+	}
+
+	private static int turnLeft(int direction) {
+		if (direction == GameEngine.NORTH)
+			return GameEngine.WEST;
+		if (direction == GameEngine.WEST)
+			return GameEngine.SOUTH;
+		if (direction == GameEngine.SOUTH)
+			return GameEngine.EAST;
+		return GameEngine.NORTH;
+	}
+
+	private static int turnRight(int direction) {
+		if (direction == GameEngine.NORTH)
+			return GameEngine.EAST;
+		if (direction == GameEngine.EAST)
+			return GameEngine.SOUTH;
+		if (direction == GameEngine.SOUTH)
+			return GameEngine.WEST;
+		return GameEngine.NORTH;
+	}
+
+	private static int dx(int direction) {
+		return direction == GameEngine.EAST ? 1
+				: direction == GameEngine.WEST ? -1 : 0;
+	}
+
+	private static int dy(int direction) {
+		return direction == GameEngine.SOUTH ? 1
+				: direction == GameEngine.NORTH ? -1 : 0;
+	}
+
+}
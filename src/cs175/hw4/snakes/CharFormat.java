@@ -0,0 +1,60 @@
+package cs175.hw4.snakes;
+
+/**
+ * CharFormat: formats numbers and text into a caller-owned char buffer, so
+ * text drawn every frame does not create Strings.
+ */
+public final class CharFormat {
+
+	private CharFormat() {
+	}
+
+	/**
+	 * Copies text into the buffer.
+	 *
+	 * @return the position after the text
+	 */
+	public static int append(char[] buffer, int pos, String text) {
+		int length = text.length();
+		text.getChars(0, length, buffer, pos);
+		return pos + length;
+	}
+
+	/**
+	 * Writes a number in decimal.
+	 *
+	 * @return the position after the number
+	 */
+	public static int append(char[] buffer, int pos, long value) {
+		if (value < 0) {
+			buffer[pos++] = '-';
+			value = -value;
+		}
+		int digits = 1;
+		for (long rest = value / 10; rest > 0; rest /= 10) {
+			digits++;
+		}
+		int end = pos + digits;
+		for (int i = end - 1; i >= pos; i--) {
+			buffer[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+		return end;
+	}
+
+	/**
+	 * Writes a duration given in nanoseconds as milliseconds with two
+	 * decimals, such as 12.05.
+	 *
+	 * @return the position after the number
+	 */
+	public static int appendMillis(char[] buffer, int pos, long nanos) {
+		long hundredths = (nanos + 5000) / 10000;
+		pos = append(buffer, pos, hundredths / 100);
+		buffer[pos++] = '.';
+		buffer[pos++] = (char) ('0' + hundredths / 10 % 10);
+		buffer[pos++] = (char) ('0' + hundredths % 10);
+		return pos;
+	}
+
+}
@@ -0,0 +1,77 @@
+package cs175.hw4.snakes;
+
+/**
+ * ChunkCounts: a count per chunk, kept in a Fenwick tree so that changing a
+ * count, summing the counts before a chunk and finding the chunk holding the
+ * k-th counted item all take O(log chunks). The chunks stand for runs of
+ * cells in board order, so the k-th item found this way is the k-th in board
+ * order.
+ */
+public class ChunkCounts {
+
+	/**
+	 * mTree: 1-based, node i summing the counts of chunks (i - (i & -i), i].
+	 * mTopBit: the highest power of two not above the number of chunks.
+	 */
+	private int[] mTree = new int[1];
+	private int mTopBit = 1;
+	private int mTotal;
+
+	/**
+	 * Sizes the counts for the given number of chunks, all 0.
+	 */
+	public void reset(int chunkCount) {
+		if (mTree.length != chunkCount + 1) {
+			mTree = new int[chunkCount + 1];
+		} else {
+			for (int i = 1; i < mTree.length; i++) {
+				mTree[i] = 0;
+			}
+		}
+		mTopBit = Integer.highestOneBit(Math.max(1, chunkCount));
+		mTotal = 0;
+	}
+
+	/**
+	 * @return the sum of all counts
+	 */
+	public int total() {
+		return mTotal;
+	}
+
+	public void add(int chunk, int delta) {
+		mTotal += delta;
+		for (int i = chunk + 1; i < mTree.length; i += i & -i) {
+			mTree[i] += delta;
+		}
+	}
+
+	/**
+	 * @return the sum of the counts of the chunks before the given one
+	 */
+	public int countBefore(int chunk) {
+		int count = 0;
+		for (int i = chunk; i > 0; i -= i & -i) {
+			count += mTree[i];
+		}
+		return count;
+	}
+
+	/**
+	 * @param rank
+	 *            0 to total() - 1
+	 * @return the chunk holding the item with rank items before it
+	 */
+	public int find(int rank) {
+		int pos = 0;
+		for (int step = mTopBit; step > 0; step >>= 1) {
+			int next = pos + step;
+			if (next < mTree.length && mTree[next] <= rank) {
+				pos = next;
+				rank -= mTree[next];
+			}
+		}
+		return pos;
+	}
+
+}
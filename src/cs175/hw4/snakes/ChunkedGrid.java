@@ -0,0 +1,123 @@
+package cs175.hw4.snakes;
+
+/**
+ * ChunkedGrid: a grid of small values, one byte per cell, for boards too
+ * large to keep densely. The grid is cut into chunks of 32 x 32 cells, and a
+ * chunk is only allocated once a cell in it is set to something other than
+ * 0, or reserved, so parts of the board nothing can reach take no memory.
+ * Reading and writing a cell stay constant time: one lookup in the chunk
+ * table and one in the chunk.
+ *
+ * clear() zeroes the chunks but keeps them. A user that must not allocate
+ * while it runs reserves the chunks of the cells it may set next, before it
+ * sets them.
+ */
+public class ChunkedGrid {
+
+	private static final int SHIFT = 5;
+	private static final int CHUNK_SIZE = 1 << SHIFT;
+	private static final int MASK = CHUNK_SIZE - 1;
+
+	private int mWidth;
+	private int mHeight;
+	private int mChunkColumns;
+
+	/**
+	 * mChunks: the chunk holding cell x, y is mChunks[(y >> SHIFT) *
+	 * mChunkColumns + (x >> SHIFT)], null while all its cells are 0
+	 */
+	private byte[][] mChunks = new byte[0][];
+	private int mAllocatedChunks;
+
+	public ChunkedGrid() {
+	}
+
+	public ChunkedGrid(int width, int height) {
+		resize(width, height);
+	}
+
+	/**
+	 * Sizes the grid, dropping every chunk, so all cells are 0.
+	 */
+	public void resize(int width, int height) {
+		mWidth = width;
+		mHeight = height;
+		mChunkColumns = (width + MASK) >> SHIFT;
+		mChunks = new byte[mChunkColumns * ((height + MASK) >> SHIFT)][];
+		mAllocatedChunks = 0;
+	}
+
+	/**
+	 * Sets every cell to 0, keeping the chunks for reuse.
+	 */
+	public void clear() {
+		for (int i = 0; i < mChunks.length; i++) {
+			byte[] chunk = mChunks[i];
+			if (chunk != null) {
+				for (int j = 0; j < chunk.length; j++) {
+					chunk[j] = 0;
+				}
+			}
+		}
+	}
+
+	public int getWidth() {
+		return mWidth;
+	}
+
+	public int getHeight() {
+		return mHeight;
+	}
+
+	/**
+	 * @return the number of chunks allocated, each taking 1 KB
+	 */
+	public int getAllocatedChunks() {
+		return mAllocatedChunks;
+	}
+
+	/**
+	 * Allocates the chunk of a cell, which must lie on the grid, if it has
+	 * none yet, so setting cells in it does not allocate.
+	 */
+	public void reserve(int x, int y) {
+		int index = (y >> SHIFT) * mChunkColumns + (x >> SHIFT);
+		if (mChunks[index] == null) {
+			mChunks[index] = new byte[CHUNK_SIZE * CHUNK_SIZE];
+			mAllocatedChunks++;
+		}
+	}
+
+	/**
+	 * @return the value of a cell, which must lie on the grid
+	 */
+	public int get(int x, int y) {
+		byte[] chunk = mChunks[(y >> SHIFT) * mChunkColumns + (x >> SHIFT)];
+		if (chunk == null)
+			return 0;
+
+		return chunk[(y & MASK) << SHIFT | x & MASK];
+	}
+
+	/**
+	 * Sets a cell, which must lie on the grid, allocating its chunk if it
+	 * has none yet.
+	 *
+	 * @param value
+	 *            -128 to 127
+	 */
+	public void set(int x, int y, int value) {
+		int index = (y >> SHIFT) * mChunkColumns + (x >> SHIFT);
+		byte[] chunk = mChunks[index];
+		if (chunk == null) {
+			if (value == 0)
+				return;
+
+			chunk = new byte[CHUNK_SIZE * CHUNK_SIZE];
+			mChunks[index] = chunk;
+			mAllocatedChunks++;
+		}
+		chunk[(y & MASK) << SHIFT | x & MASK] = (byte) value;
+	}
+
+}
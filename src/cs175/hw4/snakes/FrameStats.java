@@ -0,0 +1,147 @@
+package cs175.hw4.snakes;
+
+/**
+ * FrameStats: timing of the game loop. Records how long each tick's update
+ * and each draw took, how late each tick ran relative to its schedule and
+ * how long a turn waited from the player's input to the tick applying it,
+ * into fixed-size histograms. Draws are recorded on the UI thread, the rest
+ * on the game loop thread.
+ */
+public class FrameStats {
+
+	/**
+	 * Anything slower than one 60 Hz frame counts as jank.
+	 */
+	public static final long JANK_NANOS = 16000000L;
+
+	/**
+	 * 2000 buckets of 0.05 ms cover 100 ms.
+	 */
+	private static final int BUCKET_COUNT = 2000;
+
+	/**
+	 * A turn waits up to a whole tick, and the slowest levels tick every
+	 * 600 ms, so input latency gets 20000 buckets covering 1 s.
+	 */
+	private static final int INPUT_BUCKET_COUNT = 20000;
+
+	/**
+	 * Number of lines formatOverlayLine() produces.
+	 */
+	public static final int OVERLAY_LINES = 4;
+
+	private final Histogram mUpdateTimes = new Histogram(BUCKET_COUNT,
+			JANK_NANOS);
+	private final Histogram mDrawTimes = new Histogram(BUCKET_COUNT,
+			JANK_NANOS);
+	private final Histogram mTickLateness = new Histogram(BUCKET_COUNT,
+			JANK_NANOS);
+	private final Histogram mInputLatency = new Histogram(
+			INPUT_BUCKET_COUNT, JANK_NANOS);
+
+	public void recordUpdate(long nanos) {
+		mUpdateTimes.record(nanos);
+	}
+
+	public void recordDraw(long nanos) {
+		mDrawTimes.record(nanos);
+	}
+
+	public void recordLateness(long nanos) {
+		mTickLateness.record(nanos);
+	}
+
+	/**
+	 * @param nanos
+	 *            from a turn being made to the tick that applied it
+	 */
+	public void recordInputLatency(long nanos) {
+		mInputLatency.record(nanos);
+	}
+
+	public Histogram getUpdateTimes() {
+		return mUpdateTimes;
+	}
+
+	public Histogram getDrawTimes() {
+		return mDrawTimes;
+	}
+
+	public Histogram getTickLateness() {
+		return mTickLateness;
+	}
+
+	public Histogram getInputLatency() {
+		return mInputLatency;
+	}
+
+	public void reset() {
+		mUpdateTimes.reset();
+		mDrawTimes.reset();
+		mTickLateness.reset();
+		mInputLatency.reset();
+	}
+
+	/**
+	 * Formats one line of the debug overlay without allocating.
+	 *
+	 * @param line
+	 *            0 to OVERLAY_LINES - 1
+	 * @param buffer
+	 *            receives the text; 64 chars are enough
+	 * @return the length of the line
+	 */
+	public int formatOverlayLine(int line, char[] buffer) {
+		if (line == 0)
+			return format("upd ", mUpdateTimes, buffer);
+		if (line == 1)
+			return format("drw ", mDrawTimes, buffer);
+		if (line == 2)
+			return format("late", mTickLateness, buffer);
+		return format("inp ", mInputLatency, buffer);
+	}
+
+	private static int format(String name, Histogram histogram, char[] buffer) {
+		int pos = CharFormat.append(buffer, 0, name);
+		pos = CharFormat.append(buffer, pos, " p50 ");
+		pos = CharFormat.appendMillis(buffer, pos, histogram.getPercentile(50));
+		pos = CharFormat.append(buffer, pos, " p95 ");
+		pos = CharFormat.appendMillis(buffer, pos, histogram.getPercentile(95));
+		pos = CharFormat.append(buffer, pos, " p99 ");
+		pos = CharFormat.appendMillis(buffer, pos, histogram.getPercentile(99));
+		pos = CharFormat.append(buffer, pos, " jank ");
+		pos = CharFormat.append(buffer, pos, histogram.getJankCount());
+		pos = CharFormat.append(buffer, pos, "/");
+		return CharFormat.append(buffer, pos, histogram.getCount());
+	}
+
+	/**
+	 * @return percentiles, maximum and jank counts of all the histograms in
+	 *         milliseconds, one line each
+	 */
+	public String dump() {
+		StringBuilder out = new StringBuilder();
+		dump("update", mUpdateTimes, out);
+		dump("draw", mDrawTimes, out);
+		dump("lateness", mTickLateness, out);
+		dump("input", mInputLatency, out);
+		return out.toString();
+	}
+
+	private static void dump(String name, Histogram histogram,
+			StringBuilder out) {
+		out.append(name).append(": n=").append(histogram.getCount());
+		out.append(" p50=").append(millis(histogram.getPercentile(50)));
+		out.append(" p95=").append(millis(histogram.getPercentile(95)));
+		out.append(" p99=").append(millis(histogram.getPercentile(99)));
+		out.append(" max=").append(millis(histogram.getMax()));
+		out.append(" jank=").append(histogram.getJankCount());
+		out.append('\n');
+	}
+
+	private static String millis(long nanos) {
+		char[] buffer = new char[24];
+		return new String(buffer, 0, CharFormat.appendMillis(buffer, 0, nanos));
+	}
+
+}
@@ -0,0 +1,125 @@
+package cs175.hw4.snakes;
+
+import java.util.Random;
+
+/**
+ * FreeCells: the set of board cells an apple may be placed on. The cells are
+ * cut, in board order, into chunks of 1024, each holding a bit per cell and
+ * allocated only once a cell in it is added or reserved, so parts of the
+ * board no apple can go on take no memory. The number of free cells in each
+ * chunk is counted in ChunkCounts, so adding, removing and picking a
+ * uniformly random free cell take O(log chunks) plus a scan of one chunk, and
+ * testing takes constant time. The random cell is the k-th free cell in board
+ * order, so which cell a random number picks depends only on which cells are
+ * free, not on the order they were freed in. A game restored from a snapshot
+ * therefore places the same apples as the original.
+ */
+public class FreeCells {
+
+	private static final int SHIFT = 10;
+	private static final int CHUNK_CELLS = 1 << SHIFT;
+	private static final int WORDS = CHUNK_CELLS >> 6;
+
+	/**
+	 * mChunks: chunk i holds the cells from i << SHIFT on, one bit each,
+	 * null while none of them has been added or reserved. mCounts: the free
+	 * cells in each chunk.
+	 */
+	private long[][] mChunks = new long[0][];
+	private final ChunkCounts mCounts = new ChunkCounts();
+	private int mCellCount;
+
+	/**
+	 * Sizes the set for a board of the given number of cells and marks every
+	 * cell as not free. Chunks are kept if the size has not changed.
+	 */
+	public void reset(int cellCount) {
+		int chunkCount = (cellCount + CHUNK_CELLS - 1) >> SHIFT;
+		if (mCellCount != cellCount) {
+			mChunks = new long[chunkCount][];
+			mCellCount = cellCount;
+		} else {
+			for (int i = 0; i < chunkCount; i++) {
+				long[] chunk = mChunks[i];
+				if (chunk != null) {
+					for (int j = 0; j < WORDS; j++) {
+						chunk[j] = 0;
+					}
+				}
+			}
+		}
+		mCounts.reset(chunkCount);
+	}
+
+	/**
+	 * Allocates the chunk of a cell if it has none yet, so adding the cell
+	 * later does not allocate.
+	 */
+	public void reserve(int cell) {
+		if (mChunks[cell >> SHIFT] == null) {
+			mChunks[cell >> SHIFT] = new long[WORDS];
+		}
+	}
+
+	public int size() {
+		return mCounts.total();
+	}
+
+	public boolean contains(int cell) {
+		long[] chunk = mChunks[cell >> SHIFT];
+		return chunk != null
+				&& (chunk[(cell & CHUNK_CELLS - 1) >> 6] & 1L << cell) != 0;
+	}
+
+	public void add(int cell) {
+		reserve(cell);
+		long[] chunk = mChunks[cell >> SHIFT];
+		int word = (cell & CHUNK_CELLS - 1) >> 6;
+		if ((chunk[word] & 1L << cell) != 0)
+			return;
+
+		chunk[word] |= 1L << cell;
+		mCounts.add(cell >> SHIFT, 1);
+	}
+
+	public void remove(int cell) {
+		if (!contains(cell))
+			return;
+
+		mChunks[cell >> SHIFT][(cell & CHUNK_CELLS - 1) >> 6] &= ~(1L << cell);
+		mCounts.add(cell >> SHIFT, -1);
+	}
+
+	/**
+	 * @return a uniformly chosen free cell, or -1 if there is none
+	 */
+	public int random(Random random) {
+		if (mCounts.total() == 0)
+			return -1;
+
+		return select(random.nextInt(mCounts.total()));
+	}
+
+	/**
+	 * @return the free cell with rank free cells before it in board order
+	 */
+	private int select(int rank) {
+		int pos = mCounts.find(rank);
+		rank -= mCounts.countBefore(pos);
+
+		// the cell: the word holding it, then the bit within the word
+		long[] chunk = mChunks[pos];
+		int word = 0;
+		int bits = Long.bitCount(chunk[0]);
+		while (bits <= rank) {
+			rank -= bits;
+			bits = Long.bitCount(chunk[++word]);
+		}
+		long free = chunk[word];
+		for (; rank > 0; rank--) {
+			free &= free - 1;
+		}
+		return pos << SHIFT | word << 6 | Long.numberOfTrailingZeros(free);
+	}
+
+}
@@ -0,0 +1,1014 @@
+package cs175.hw4.snakes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * GameEngine: the rules of the snake game (board, snake, apples, walls, lives,
+ * level and mode transitions) without any Android dependency. SnakeView drives
+ * it one tick at a time and renders the state it exposes, so the same
+ * simulation can also be run headless on a plain JVM.
+ */
+public class GameEngine {
+
+	/**
+	 * Modes of the game. static final ints are used instead of an enum for
+	 * performance reasons.
+	 */
+	public static final int PAUSE = 0;
+	public static final int READY = 1;
+	public static final int RUNNING = 2;
+	public static final int LOSE = 3;
+	public static final int WIN = 4;
+	public static final int GAMEOVER = 5;
+
+	/**
+	 * Directions the snake can be headed.
+	 */
+	public static final int NORTH = 1;
+	public static final int SOUTH = 2;
+	public static final int EAST = 3;
+	public static final int WEST = 4;
+
+	/**
+	 * Inputs accepted by step(): no turn, or a turn relative to the current
+	 * direction. The values match Snake.MOVE_LEFT and Snake.MOVE_RIGHT.
+	 */
+	public static final int INPUT_NONE = -1;
+	public static final int INPUT_LEFT = 0;
+	public static final int INPUT_RIGHT = 3;
+
+	public static final int START_LIVES = 3;
+
+	/**
+	 * What killed the snake on the last step, if anything.
+	 */
+	public static final int DEATH_NONE = 0;
+	public static final int DEATH_WALL = 1;
+	public static final int DEATH_BODY = 2;
+
+	/**
+	 * Contents of a cell in the occupancy grid.
+	 */
+	private static final byte CELL_EMPTY = 0;
+	private static final byte CELL_SNAKE = 1;
+	private static final byte CELL_APPLE = 2;
+
+	private int mXTileCount;
+	private int mYTileCount;
+
+	private int mMode = READY;
+	private int mDirection = EAST;
+	private int mNextDirection = EAST;
+
+	/**
+	 * mScore: number of levels cleared and apples eaten. mFinalScore and
+	 * mFinalLevel: score and level of the last game that ended, kept after
+	 * they are reset for the next game. mMoveDelay: number of milliseconds
+	 * between snake movements.
+	 */
+	private long mScore = 0;
+	private long mFinalScore = 0;
+	private int mFinalLevel = 0;
+	private long mLives = START_LIVES;
+	private int mCurrentLevel = 0;
+	private long mMoveDelay = 600;
+
+	/**
+	 * mLevels: the levels of the game. Once all of them are cleared the first
+	 * one is played once more as the final round. mLevel: the level being
+	 * played, mExitX/mExitY: the cell the snake leaves it through.
+	 */
+	private final LevelPack mLevels;
+	private final int maxLevels;
+	private Level mLevel;
+	private int mExitX;
+	private int mExitY;
+
+	/**
+	 * mSnake: the cells that make up the snake's body, head first. mApples:
+	 * the cells of the apples, mAppleCount of them. Cells are packed as y *
+	 * mXTileCount + x.
+	 */
+	private final SnakeBody mSnake = new SnakeBody(64);
+	private int[] mApples = new int[4];
+	private int mAppleCount = 0;
+
+	/**
+	 * mLastTail: the cell the last step pulled the tail off, mLastApple: the
+	 * cell the last step placed an apple on; -1 if it did not.
+	 */
+	private int mLastTail = -1;
+	private int mLastApple = -1;
+
+	/**
+	 * mOccupancy: what covers each cell of the board. Updated incrementally
+	 * as the head is pushed and the tail pulled, so collision and free-cell
+	 * checks are constant time. Chunked, so a large board only takes memory
+	 * where the snake and the apples can go.
+	 */
+	private final ChunkedGrid mOccupancy = new ChunkedGrid();
+
+	/**
+	 * mFreeCounts: the number of free cells, those inside the border that
+	 * are neither wall, snake nor apple, in each run of FREE_CHUNK_CELLS
+	 * cells in board order, maintained alongside mOccupancy. A new apple goes
+	 * on the k-th free cell: the counts find its run, and a scan of the run
+	 * finds the cell. Only the counts are kept, so the free cells take no
+	 * memory of their own.
+	 */
+	private static final int FREE_SHIFT = 10;
+	private static final int FREE_CHUNK_CELLS = 1 << FREE_SHIFT;
+	private final ChunkCounts mFreeCounts = new ChunkCounts();
+
+	/**
+	 * mNextApple: the cell the next apple goes on if the next step eats one,
+	 * as found by prepareStep(); -1 if the head is not next to an apple.
+	 */
+	private int mNextApple = -1;
+
+	private Walls mwall;
+
+	/**
+	 * mRandom: places the apples, reseeded with mSeed by every new game so a
+	 * game can be played again from its seed and inputs. mSeeds: where the
+	 * seeds come from. mTick: number of steps since the game started.
+	 */
+	private final GameRandom mRandom = new GameRandom();
+	private final Random mSeeds;
+	private long mSeed;
+	private int mTick;
+
+	private int mDeathCause = DEATH_NONE;
+
+	/**
+	 * Bytes of a snapshot before the snake's cells: board size, mode,
+	 * directions, level, lives, scores, delay, seed, random state, tick and
+	 * the snake's length. The apple count follows the snake.
+	 */
+	private static final int SNAPSHOT_HEADER_SIZE = 2 + 2 + 3 + 2 + 8 + 8 + 8
+			+ 2 + 8 + 8 + 8 + 4 + 4 + 4;
+
+	public GameEngine(LevelPack levels, int xTileCount, int yTileCount) {
+		this(levels, xTileCount, yTileCount, new Random());
+	}
+
+	/**
+	 * @param seed
+	 *            seeds the seeds of the games, so the engine plays the same
+	 *            games every time
+	 */
+	public GameEngine(LevelPack levels, int xTileCount, int yTileCount,
+			long seed) {
+		this(levels, xTileCount, yTileCount, new Random(seed));
+	}
+
+	private GameEngine(LevelPack levels, int xTileCount, int yTileCount,
+			Random seeds) {
+		mLevels = levels;
+		maxLevels = levels.getLevelCount();
+		mXTileCount = xTileCount;
+		mYTileCount = yTileCount;
+		mSeeds = seeds;
+	}
+
+	/**
+	 * Sets the number of tiles on the board. A game in progress on a board of
+	 * another size, such as one restored after the screen turned, starts its
+	 * level over on the new board.
+	 *
+	 * @return true if a game in progress was started over
+	 */
+	public boolean setBoardSize(int xTileCount, int yTileCount) {
+		if (xTileCount == mXTileCount && yTileCount == mYTileCount)
+			return false;
+
+		mXTileCount = xTileCount;
+		mYTileCount = yTileCount;
+		if (mSnake.isEmpty())
+			return false;
+
+		int mode = mMode;
+		newGame();
+		mMode = mode;
+		return true;
+	}
+
+	public int getXTileCount() {
+		return mXTileCount;
+	}
+
+	public int getYTileCount() {
+		return mYTileCount;
+	}
+
+	/**
+	 * Starts the current level: compiles its walls, lays out the snake at its
+	 * start position, resets the speed and places the level's apples.
+	 */
+	public void newGame() {
+		newGame(mSeeds.nextLong());
+	}
+
+	/**
+	 * Starts a new game like newGame(), placing the apples from the given
+	 * seed.
+	 */
+	public void newGame(long seed) {
+		mSeed = seed;
+		mRandom.setSeed(seed);
+		mTick = 0;
+		mDeathCause = DEATH_NONE;
+		buildLevel();
+
+		mSnake.clear();
+		mAppleCount = 0;
+		clearOccupancy();
+
+		int x = Level.resolve(mLevel.getStartX(), mXTileCount);
+		int y = Level.resolve(mLevel.getStartY(), mYTileCount);
+		mDirection = mLevel.getStartDirection();
+		mNextDirection = mDirection;
+		// the body trails behind the head
+		int dx = mDirection == EAST ? -1 : mDirection == WEST ? 1 : 0;
+		int dy = mDirection == SOUTH ? -1 : mDirection == NORTH ? 1 : 0;
+		for (int i = 0; i < mLevel.getStartLength(); i++) {
+			mSnake.pushTail(y * mXTileCount + x);
+			mOccupancy.set(x, y, CELL_SNAKE);
+			x += dx;
+			y += dy;
+		}
+		mMoveDelay = mLevel.getMoveDelay();
+
+		rebuildFreeCells();
+		for (int i = 0; i < mLevel.getAppleCount(); i++) {
+			addRandomApple();
+		}
+	}
+
+	/**
+	 * Turns the snake left or right relative to the direction it is currently
+	 * headed. The turn takes effect on the next step.
+	 *
+	 * @param input
+	 *            INPUT_LEFT or INPUT_RIGHT
+	 */
+	public void turn(int input) {
+		if (input == INPUT_LEFT) {
+			if (mDirection == NORTH) {
+				mNextDirection = WEST;
+			} else if (mDirection == WEST) {
+				mNextDirection = SOUTH;
+			} else if (mDirection == SOUTH) {
+				mNextDirection = EAST;
+			} else {
+				mNextDirection = NORTH;
+			}
+		} else if (input != INPUT_NONE) {
+			if (mDirection == NORTH) {
+				mNextDirection = EAST;
+			} else if (mDirection == EAST) {
+				mNextDirection = SOUTH;
+			} else if (mDirection == SOUTH) {
+				mNextDirection = WEST;
+			} else {
+				mNextDirection = NORTH;
+			}
+		}
+	}
+
+	/**
+	 * Advances the game by one tick: applies the input, moves the snake and
+	 * resolves walls, apples, self collisions and the exit hole.
+	 *
+	 * @param input
+	 *            INPUT_NONE, INPUT_LEFT or INPUT_RIGHT
+	 * @return RUNNING if the game goes on, otherwise the mode the tick ended
+	 *         in: LOSE, WIN or GAMEOVER
+	 */
+	public int step(int input) {
+		if (mMode != RUNNING) {
+			return mMode;
+		}
+		turn(input);
+
+		mTick++;
+		mDeathCause = DEATH_NONE;
+		mLastTail = -1;
+		mLastApple = -1;
+		return updateSnake();
+	}
+
+	/**
+	 * Applies the bookkeeping of a mode change: a lost life clears the snake,
+	 * a cleared level moves on to the next one, and game over resets level,
+	 * lives and score. Only a running game can be paused.
+	 *
+	 * @param newMode
+	 */
+	public void setMode(int newMode) {
+		if (newMode == PAUSE && mMode != RUNNING) {
+			return;
+		}
+		mMode = newMode;
+
+		if (newMode == LOSE) {
+			clearSnake();
+		}
+
+		if (newMode == WIN) {
+			mCurrentLevel++;
+			mMode = READY;
+		}
+
+		if (newMode == GAMEOVER) {
+			mFinalScore = mScore;
+			mFinalLevel = mCurrentLevel;
+			mCurrentLevel = 0;
+			mLives = START_LIVES;
+			mScore = 0;
+			clearSnake();
+		}
+	}
+
+	public int getMode() {
+		return mMode;
+	}
+
+	public long getScore() {
+		return mScore;
+	}
+
+	/**
+	 * @return the score the last finished game ended with
+	 */
+	public long getFinalScore() {
+		return mFinalScore;
+	}
+
+	/**
+	 * @return the level the last finished game ended on
+	 */
+	public int getFinalLevel() {
+		return mFinalLevel;
+	}
+
+	public long getLives() {
+		return mLives;
+	}
+
+	/**
+	 * Sets where the next game starts: on which level, with how many lives
+	 * and what score. Used to play a recorded game again.
+	 */
+	public void setProgress(int level, long lives, long score) {
+		mCurrentLevel = level;
+		mLives = lives;
+		mScore = score;
+	}
+
+	public int getLevel() {
+		return mCurrentLevel;
+	}
+
+	public long getMoveDelay() {
+		return mMoveDelay;
+	}
+
+	public Walls getWalls() {
+		return mwall;
+	}
+
+	/**
+	 * @return the column of the cell the snake leaves the level through,
+	 *         usually just outside the board
+	 */
+	public int getExitX() {
+		return mExitX;
+	}
+
+	public int getExitY() {
+		return mExitY;
+	}
+
+	public int getSnakeLength() {
+		return mSnake.size();
+	}
+
+	/**
+	 * @param index
+	 *            0 is the head
+	 */
+	public int getSnakeX(int index) {
+		return mSnake.get(index) % mXTileCount;
+	}
+
+	public int getSnakeY(int index) {
+		return mSnake.get(index) / mXTileCount;
+	}
+
+	/**
+	 * @return true if the snake covers the tile
+	 */
+	public boolean isSnake(int x, int y) {
+		if (x < 0 || y < 0 || x >= mXTileCount || y >= mYTileCount)
+			return false;
+
+		return mOccupancy.get(x, y) == CELL_SNAKE;
+	}
+
+	/**
+	 * Makes room for what the next step may use, so the step does not
+	 * allocate: a cell more in the snake's body, the occupancy of the cells
+	 * around the head and, if an apple lies next to the head, the occupancy
+	 * of the cell the apple is replaced on should the snake eat it. The body
+	 * doubles when it is full, and the occupancy grows by the chunks the
+	 * snake reaches, so memory follows the area the game uses. Call between
+	 * steps.
+	 */
+	public void prepareStep() {
+		mNextApple = -1;
+		if (mSnake.isEmpty() || mwall == null)
+			return;
+
+		mSnake.reserve(mSnake.size() + 1);
+		int head = mSnake.head();
+		int x = head % mXTileCount;
+		int y = head / mXTileCount;
+		boolean apple = reserveCell(x - 1, y);
+		apple |= reserveCell(x + 1, y);
+		apple |= reserveCell(x, y - 1);
+		apple |= reserveCell(x, y + 1);
+		if (!apple)
+			return;
+
+		// eating the apple leaves the free cells as they are, so the next
+		// apple is the one picked now, from the same random state
+		long state = mRandom.getState();
+		mNextApple = randomFreeCell();
+		mRandom.setState(state);
+		if (mNextApple >= 0) {
+			mOccupancy.reserve(mNextApple % mXTileCount, mNextApple
+					/ mXTileCount);
+		}
+	}
+
+	/**
+	 * @return the column of the cell the next apple goes on if the next step
+	 *         eats one, as found by prepareStep(), or -1
+	 */
+	public int getNextAppleX() {
+		return mNextApple < 0 ? -1 : mNextApple % mXTileCount;
+	}
+
+	public int getNextAppleY() {
+		return mNextApple < 0 ? -1 : mNextApple / mXTileCount;
+	}
+
+	public int getAppleCount() {
+		return mAppleCount;
+	}
+
+	public int getAppleX(int index) {
+		return mApples[index] % mXTileCount;
+	}
+
+	public int getAppleY(int index) {
+		return mApples[index] / mXTileCount;
+	}
+
+	/**
+	 * @return the cell the last step pulled the tail off, or -1 if the snake
+	 *         grew
+	 */
+	public int getLastTail() {
+		return mLastTail;
+	}
+
+	/**
+	 * @return the cell the last step placed a new apple on, or -1
+	 */
+	public int getLastApple() {
+		return mLastApple;
+	}
+
+	/**
+	 * @return the seed the current game places its apples from
+	 */
+	public long getSeed() {
+		return mSeed;
+	}
+
+	/**
+	 * @return DEATH_WALL or DEATH_BODY if the last step killed the snake,
+	 *         otherwise DEATH_NONE
+	 */
+	public int getDeathCause() {
+		return mDeathCause;
+	}
+
+	/**
+	 * @return the number of steps since the current game started
+	 */
+	public int getTick() {
+		return mTick;
+	}
+
+	public int getDirection() {
+		return mDirection;
+	}
+
+	public int getNextDirection() {
+		return mNextDirection;
+	}
+
+	/**
+	 * @return the snake flattened as [x1,y1,x2,y2,...], head first
+	 */
+	public int[] getSnakeArray() {
+		int length = mSnake.size();
+		int[] rawArray = new int[length * 2];
+
+		int i = 0;
+		for (int index = 0; index < length; index++) {
+			int cell = mSnake.get(index);
+			rawArray[i++] = cell % mXTileCount;
+			rawArray[i++] = cell / mXTileCount;
+		}
+		return rawArray;
+	}
+
+	/**
+	 * @return the apples flattened as [x1,y1,x2,y2,...]
+	 */
+	public int[] getAppleArray() {
+		int[] rawArray = new int[mAppleCount * 2];
+
+		int i = 0;
+		for (int index = 0; index < mAppleCount; index++) {
+			rawArray[i++] = mApples[index] % mXTileCount;
+			rawArray[i++] = mApples[index] / mXTileCount;
+		}
+		return rawArray;
+	}
+
+	/**
+	 * Restores a game saved with the getters above. The game is left paused.
+	 *
+	 * @param apples
+	 *            : [x1,y1,x2,y2,...]
+	 * @param snake
+	 *            : [x1,y1,x2,y2,...], head first
+	 */
+	public void restore(int[] apples, int[] snake, int direction,
+			int nextDirection, long moveDelay, long score) {
+		mMode = PAUSE;
+		mDirection = direction;
+		mNextDirection = nextDirection;
+		mMoveDelay = moveDelay;
+		mScore = score;
+
+		buildLevel();
+		clearOccupancy();
+		mSnake.clear();
+		for (int index = 0; index < snake.length; index += 2) {
+			int cell = snake[index + 1] * mXTileCount + snake[index];
+			mSnake.pushTail(cell);
+			occupy(snake[index], snake[index + 1], CELL_SNAKE);
+		}
+		mAppleCount = 0;
+		for (int index = 0; index < apples.length; index += 2) {
+			addApple(apples[index + 1] * mXTileCount + apples[index]);
+			occupy(apples[index], apples[index + 1], CELL_APPLE);
+		}
+		rebuildFreeCells();
+	}
+
+	/**
+	 * @return the number of bytes writeSnapshot() writes
+	 */
+	public int getSnapshotSize() {
+		return SNAPSHOT_HEADER_SIZE + 4 * (mSnake.size() + mAppleCount);
+	}
+
+	/**
+	 * Writes the whole state of the game: the board size, mode, progress,
+	 * the state of the random generator, and the snake and apples as packed
+	 * cells. The walls are not written; they follow from the level.
+	 *
+	 * @param out
+	 *            receives getSnapshotSize() bytes
+	 */
+	public void writeSnapshot(ByteBuffer out) {
+		out.putShort((short) mXTileCount);
+		out.putShort((short) mYTileCount);
+		out.put((byte) mMode);
+		out.put((byte) mDirection);
+		out.put((byte) mNextDirection);
+		out.putShort((short) mCurrentLevel);
+		out.putLong(mLives);
+		out.putLong(mScore);
+		out.putLong(mFinalScore);
+		out.putShort((short) mFinalLevel);
+		out.putLong(mMoveDelay);
+		out.putLong(mSeed);
+		out.putLong(mRandom.getState());
+		out.putInt(mTick);
+
+		int length = mSnake.size();
+		out.putInt(length);
+		for (int index = 0; index < length; index++) {
+			out.putInt(mSnake.get(index));
+		}
+		out.putInt(mAppleCount);
+		for (int index = 0; index < mAppleCount; index++) {
+			out.putInt(mApples[index]);
+		}
+	}
+
+	/**
+	 * Restores a game written by writeSnapshot() in one pass over the data.
+	 * A running game comes back paused.
+	 *
+	 * @throws IOException
+	 *             if the snapshot does not describe a valid game; if its
+	 *             header was valid the board is left empty
+	 */
+	public void readSnapshot(ByteBuffer in) throws IOException {
+		if (in.remaining() < SNAPSHOT_HEADER_SIZE) {
+			throw new IOException("snapshot truncated");
+		}
+		int xTileCount = in.getShort();
+		int yTileCount = in.getShort();
+		int mode = in.get();
+		int direction = in.get();
+		int nextDirection = in.get();
+		int level = in.getShort();
+		if (xTileCount < 3 || yTileCount < 3 || mode < PAUSE
+				|| mode > GAMEOVER || level < 0 || level > maxLevels) {
+			throw new IOException("bad snapshot header");
+		}
+		if (direction < NORTH || direction > WEST || nextDirection < NORTH
+				|| nextDirection > WEST) {
+			throw new IOException("bad snapshot direction " + direction + ", "
+					+ nextDirection);
+		}
+
+		mXTileCount = xTileCount;
+		mYTileCount = yTileCount;
+		mMode = mode == RUNNING ? PAUSE : mode;
+		mDirection = direction;
+		mNextDirection = nextDirection;
+		mCurrentLevel = level;
+		mLives = in.getLong();
+		mScore = in.getLong();
+		mFinalScore = in.getLong();
+		mFinalLevel = in.getShort();
+		mMoveDelay = in.getLong();
+		mSeed = in.getLong();
+		mRandom.setState(in.getLong());
+		mTick = in.getInt();
+
+		buildLevel();
+		clearOccupancy();
+		mSnake.clear();
+		mAppleCount = 0;
+		try {
+			readCells(in);
+		} catch (IOException e) {
+			clearOccupancy();
+			mSnake.clear();
+			mAppleCount = 0;
+			throw e;
+		} finally {
+			rebuildFreeCells();
+		}
+		mLastTail = -1;
+		mLastApple = -1;
+		mDeathCause = DEATH_NONE;
+	}
+
+	private void readCells(ByteBuffer in) throws IOException {
+		int cells = mXTileCount * mYTileCount;
+		int length = in.getInt();
+		if (length < 0 || length > cells || in.remaining() < 4 * length + 4) {
+			throw new IOException("bad snake length " + length);
+		}
+		for (int index = 0; index < length; index++) {
+			int cell = readCell(in, cells);
+			mSnake.pushTail(cell);
+			mOccupancy.set(cell % mXTileCount, cell / mXTileCount, CELL_SNAKE);
+		}
+
+		int appleCount = in.getInt();
+		if (appleCount < 0 || appleCount > cells
+				|| in.remaining() < 4 * appleCount) {
+			throw new IOException("bad apple count " + appleCount);
+		}
+		for (int index = 0; index < appleCount; index++) {
+			int cell = readCell(in, cells);
+			addApple(cell);
+			mOccupancy.set(cell % mXTileCount, cell / mXTileCount, CELL_APPLE);
+		}
+	}
+
+	private static int readCell(ByteBuffer in, int cells) throws IOException {
+		int cell = in.getInt();
+		if (cell < 0 || cell >= cells) {
+			throw new IOException("cell out of range: " + cell);
+		}
+		return cell;
+	}
+
+	/**
+	 * Decodes the current level and compiles its walls. They stay as they are
+	 * until the next level starts.
+	 */
+	private void buildLevel() {
+		mLevel = mLevels.getLevel(mCurrentLevel % maxLevels);
+		mExitX = Level.resolve(mLevel.getExitX(), mXTileCount);
+		mExitY = Level.resolve(mLevel.getExitY(), mYTileCount);
+		mwall = Walls.compile(mLevel, mXTileCount, mYTileCount);
+	}
+
+	/**
+	 * Counts the cells an apple may go on: inside the border, and not
+	 * covered by a wall, the snake or another apple.
+	 */
+	private void rebuildFreeCells() {
+		int cells = mXTileCount * mYTileCount;
+		mFreeCounts.reset((cells + FREE_CHUNK_CELLS - 1) >> FREE_SHIFT);
+		for (int start = 0; start < cells; start += FREE_CHUNK_CELLS) {
+			int end = Math.min(cells, start + FREE_CHUNK_CELLS);
+			int free = 0;
+			for (int cell = start; cell < end; cell++) {
+				if (isFree(cell % mXTileCount, cell / mXTileCount)) {
+					free++;
+				}
+			}
+			mFreeCounts.add(start >> FREE_SHIFT, free);
+		}
+	}
+
+	/**
+	 * @return true if an apple may go on the cell
+	 */
+	private boolean isFree(int x, int y) {
+		return isInside(x, y) && !mwall.getWall(x, y)
+				&& mOccupancy.get(x, y) == CELL_EMPTY;
+	}
+
+	/**
+	 * @return true for a cell inside the border
+	 */
+	private boolean isInside(int x, int y) {
+		return x > 0 && y > 0 && x < mXTileCount - 1 && y < mYTileCount - 1;
+	}
+
+	/**
+	 * Reserves the occupancy of a cell the head may move onto.
+	 *
+	 * @return true if an apple lies on it
+	 */
+	private boolean reserveCell(int x, int y) {
+		if (x < 0 || y < 0 || x >= mXTileCount || y >= mYTileCount
+				|| mwall.getWall(x, y))
+			return false;
+
+		mOccupancy.reserve(x, y);
+		return mOccupancy.get(x, y) == CELL_APPLE;
+	}
+
+	/**
+	 * @return a uniformly chosen free cell, the k-th in board order, or -1
+	 *         if there is none
+	 */
+	private int randomFreeCell() {
+		int count = mFreeCounts.total();
+		if (count == 0)
+			return -1;
+
+		int rank = mRandom.nextInt(count);
+		int chunk = mFreeCounts.find(rank);
+		rank -= mFreeCounts.countBefore(chunk);
+		int end = Math.min(mXTileCount * mYTileCount, (chunk + 1)
+				<< FREE_SHIFT);
+		for (int cell = chunk << FREE_SHIFT; cell < end; cell++) {
+			if (isFree(cell % mXTileCount, cell / mXTileCount) && rank-- == 0)
+				return cell;
+		}
+		throw new IllegalStateException("free cell counts are out of date");
+	}
+
+	/**
+	 * Hands a cell the snake or an apple has left back to the free cells, if
+	 * an apple may go there at all.
+	 */
+	private void releaseCell(int cell) {
+		int x = cell % mXTileCount;
+		int y = cell / mXTileCount;
+		if (mOccupancy.get(x, y) == CELL_EMPTY)
+			return;
+
+		mOccupancy.set(x, y, CELL_EMPTY);
+		if (isInside(x, y) && !mwall.getWall(x, y)) {
+			mFreeCounts.add(cell >> FREE_SHIFT, 1);
+		}
+	}
+
+	/**
+	 * Sizes the occupancy grid to the board and marks every cell empty.
+	 */
+	private void clearOccupancy() {
+		if (mOccupancy.getWidth() != mXTileCount
+				|| mOccupancy.getHeight() != mYTileCount) {
+			mOccupancy.resize(mXTileCount, mYTileCount);
+		} else {
+			mOccupancy.clear();
+		}
+	}
+
+	/**
+	 * Removes the snake from the board, leaving the apples in place.
+	 */
+	private void clearSnake() {
+		int length = mSnake.size();
+		for (int index = 0; index < length; index++) {
+			releaseCell(mSnake.get(index));
+		}
+		mSnake.clear();
+	}
+
+	private void occupy(int x, int y, byte content) {
+		if (x < 0 || y < 0 || x >= mXTileCount || y >= mYTileCount)
+			return;
+
+		mOccupancy.set(x, y, content);
+	}
+
+	private void addApple(int cell) {
+		if (mAppleCount == mApples.length) {
+			int[] apples = new int[mAppleCount * 2];
+			System.arraycopy(mApples, 0, apples, 0, mAppleCount);
+			mApples = apples;
+		}
+		mApples[mAppleCount++] = cell;
+	}
+
+	/**
+	 * Removes the apple covering a cell, moving the last apple into its slot.
+	 */
+	private void removeApple(int cell) {
+		for (int index = 0; index < mAppleCount; index++) {
+			if (mApples[index] == cell) {
+				mApples[index] = mApples[--mAppleCount];
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Places an apple on a uniformly chosen free cell.
+	 *
+	 * @return false if there is no free cell left on the board
+	 */
+	private boolean addRandomApple() {
+		int cell = randomFreeCell();
+		if (cell < 0)
+			return false;
+
+		mFreeCounts.add(cell >> FREE_SHIFT, -1);
+		addApple(cell);
+		mOccupancy.set(cell % mXTileCount, cell / mXTileCount, CELL_APPLE);
+		mLastApple = cell;
+		return true;
+	}
+
+	/**
+	 * Loses a life and ends the game if none are left or the last level was
+	 * being played.
+	 *
+	 * @return the mode the game ended up in
+	 */
+	private int loseLife() {
+		mLives--;
+		return endRound();
+	}
+
+	/**
+	 * Moves on to the next level, or ends the game if no lives are left or
+	 * the last level was being played.
+	 *
+	 * @return the mode the game ended up in
+	 */
+	private int clearLevel() {
+		if (mLives == 0 || mCurrentLevel == maxLevels) {
+			setMode(GAMEOVER);
+			return GAMEOVER;
+		}
+		setMode(WIN);
+		return WIN;
+	}
+
+	private int endRound() {
+		int outcome = (mLives == 0 || mCurrentLevel == maxLevels) ? GAMEOVER
+				: LOSE;
+		setMode(outcome);
+		return outcome;
+	}
+
+	/**
+	 * Figure out which way the snake is going, see if he's run into anything
+	 * (the walls or himself). If he's not going to die, we then add to the
+	 * front and subtract from the rear in order to simulate motion. If we want
+	 * to grow him, we don't subtract from the rear.
+	 */
+	private int updateSnake() {
+		boolean growSnake = false;
+
+		// Grab the snake by the head
+		int head = mSnake.head();
+		int newX = head % mXTileCount;
+		int newY = head / mXTileCount;
+
+		mDirection = mNextDirection;
+
+		switch (mDirection) {
+		case EAST: {
+			newX++;
+			break;
+		}
+		case WEST: {
+			newX--;
+			break;
+		}
+		case NORTH: {
+			newY--;
+			break;
+		}
+		case SOUTH: {
+			newY++;
+			break;
+		}
+		}
+
+		// Look for win hole
+		if (newX == mExitX && newY == mExitY) {
+			mScore++;
+			return clearLevel();
+		}
+
+		// Collision detection with the walls
+		if (mwall.getWall(newX, newY)) {
+			mDeathCause = DEATH_WALL;
+			if (newX < mwall.getXMax() && newY < mwall.getYMax()) {
+				mLives--;
+			}
+			return endRound();
+		}
+		// the snake grows on every move
+		growSnake = true;
+
+		// Look for collisions with itself. Anything outside the board was
+		// caught by the walls above.
+		int newHead = newY * mXTileCount + newX;
+		int occupant = mOccupancy.get(newX, newY);
+		if (occupant == CELL_SNAKE) {
+			mDeathCause = DEATH_BODY;
+			return loseLife();
+		}
+
+		// Look for apples
+		if (occupant == CELL_APPLE) {
+			removeApple(newHead);
+			mScore++;
+
+			mMoveDelay *= 0.9;
+
+			growSnake = true;
+
+			// the head covers the eaten apple before a new one is placed. A
+			// board without room for another apple is a cleared level.
+			mOccupancy.set(newX, newY, CELL_SNAKE);
+			if (!addRandomApple()) {
+				mSnake.pushHead(newHead);
+				return clearLevel();
+			}
+		}
+
+		// push a new head onto the body and pull off the tail
+		mSnake.pushHead(newHead);
+		mOccupancy.set(newX, newY, CELL_SNAKE);
+		if (occupant == CELL_EMPTY && isInside(newX, newY)) {
+			mFreeCounts.add(newHead >> FREE_SHIFT, -1);
+		}
+		// except if we want the snake to grow
+		if (!growSnake) {
+			mLastTail = mSnake.popTail();
+			releaseCell(mLastTail);
+		}
+		return RUNNING;
+	}
+
+}
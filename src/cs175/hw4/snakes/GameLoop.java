@@ -0,0 +1,140 @@
+package cs175.hw4.snakes;
+
+/**
+ * GameLoop: runs the game's ticks on a thread of its own at a fixed period.
+ * Tick times are scheduled from the previous deadline rather than from when
+ * the previous tick finished, so the cadence does not drift with the time a
+ * tick takes. After a stall up to MAX_CATCH_UP_TICKS late ticks are run back
+ * to back; beyond that the backlog is dropped and the schedule restarts from
+ * the current time.
+ */
+public class GameLoop implements Runnable {
+
+	/**
+	 * What the loop drives. Both methods are called on the loop thread.
+	 */
+	public interface Callback {
+
+		/**
+		 * Runs one tick.
+		 *
+		 * @param lateNanos
+		 *            how long after its scheduled time the tick started
+		 * @return milliseconds until the next tick, or a negative number to end
+		 *         the loop
+		 */
+		long onTick(long lateNanos);
+
+		/**
+		 * Called after one or more ticks ran, and once more when the loop
+		 * ends, to present their result.
+		 */
+		void onFrame();
+	}
+
+	private static final int MAX_CATCH_UP_TICKS = 3;
+	private static final long NANOS_PER_MILLI = 1000000L;
+
+	private final Callback mCallback;
+
+	/**
+	 * mThread: the thread currently running the loop, or null. A loop thread
+	 * keeps going only as long as it is still mThread.
+	 */
+	private volatile Thread mThread;
+
+	public GameLoop(Callback callback) {
+		mCallback = callback;
+	}
+
+	/**
+	 * Starts the loop unless it is already running. The first tick runs
+	 * immediately.
+	 */
+	public synchronized void start() {
+		if (mThread != null)
+			return;
+
+		mThread = new Thread(this, "GameLoop");
+		mThread.start();
+	}
+
+	/**
+	 * Stops the loop and waits for the tick in progress, if any, to finish.
+	 * Must not be called while holding a lock a tick needs.
+	 */
+	public void stop() {
+		Thread thread;
+		synchronized (this) {
+			thread = mThread;
+			mThread = null;
+		}
+		if (thread == null || thread == Thread.currentThread())
+			return;
+
+		thread.interrupt();
+		boolean interrupted = false;
+		while (thread.isAlive()) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public boolean isRunning() {
+		return mThread != null;
+	}
+
+	@Override
+	public void run() {
+		Thread self = Thread.currentThread();
+		long next = System.nanoTime();
+
+		while (mThread == self) {
+			long now = System.nanoTime();
+			if (now < next) {
+				sleep(next - now);
+				continue;
+			}
+
+			long period;
+			int ticks = 0;
+			do {
+				period = mCallback.onTick(System.nanoTime() - next);
+				if (period < 0) {
+					synchronized (this) {
+						if (mThread == self) {
+							mThread = null;
+						}
+					}
+					mCallback.onFrame();
+					return;
+				}
+				next += period * NANOS_PER_MILLI;
+				ticks++;
+			} while (next <= now && ticks < MAX_CATCH_UP_TICKS
+					&& mThread == self);
+
+			if (next <= now) {
+				// too far behind to catch up: drop the missed ticks
+				next = now + period * NANOS_PER_MILLI;
+			}
+			mCallback.onFrame();
+		}
+	}
+
+	private static void sleep(long nanos) {
+		try {
+			Thread.sleep(nanos / NANOS_PER_MILLI,
+					(int) (nanos % NANOS_PER_MILLI));
+		} catch (InterruptedException e) {
+			// woken up by stop(), the loop condition takes care of it
+		}
+	}
+
+}
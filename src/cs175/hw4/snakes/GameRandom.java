@@ -0,0 +1,49 @@
+package cs175.hw4.snakes;
+
+import java.util.Random;
+
+/**
+ * GameRandom: a Random whose state can be read and set, so a game saved in
+ * the middle goes on placing the same apples after it is restored. It uses
+ * the same generator as java.util.Random, so it produces the same numbers
+ * from the same seed. Not thread-safe; the engine's lock guards it.
+ */
+public class GameRandom extends Random {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final long MULTIPLIER = 0x5deece66dL;
+	private static final long ADDEND = 0xbL;
+	private static final long MASK = (1L << 48) - 1;
+
+	/**
+	 * mState: the 48 bits of the generator's state. It has no initializer on
+	 * purpose: Random's constructor sets it through setSeed() before field
+	 * initializers would run.
+	 */
+	private long mState;
+
+	public GameRandom() {
+		super(0);
+	}
+
+	@Override
+	public void setSeed(long seed) {
+		mState = (seed ^ MULTIPLIER) & MASK;
+	}
+
+	@Override
+	protected int next(int bits) {
+		mState = (mState * MULTIPLIER + ADDEND) & MASK;
+		return (int) (mState >>> (48 - bits));
+	}
+
+	public long getState() {
+		return mState;
+	}
+
+	public void setState(long state) {
+		mState = state & MASK;
+	}
+
+}
@@ -0,0 +1,90 @@
+package cs175.hw4.snakes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * GameSnapshot: saves a GameEngine's game as a versioned binary snapshot, to
+ * be kept in a Bundle as a byte array or written to a file, and restores it.
+ * A snapshot is a magic number and a version followed by what
+ * GameEngine.writeSnapshot() writes; the version has to change whenever
+ * that does.
+ */
+public final class GameSnapshot {
+
+	private static final int MAGIC = 0x534e5353; // "SNSS"
+	private static final short VERSION = 1;
+	private static final int HEADER_SIZE = 6;
+
+	private GameSnapshot() {
+	}
+
+	/**
+	 * @return the engine's game as a snapshot
+	 */
+	public static byte[] toBytes(GameEngine engine) {
+		ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE
+				+ engine.getSnapshotSize());
+		out.putInt(MAGIC);
+		out.putShort(VERSION);
+		engine.writeSnapshot(out);
+		return out.array();
+	}
+
+	/**
+	 * Restores the game in a snapshot into the engine.
+	 *
+	 * @throws IOException
+	 *             if the data is not a snapshot this version can read
+	 */
+	public static void restore(GameEngine engine, byte[] data)
+			throws IOException {
+		ByteBuffer in = ByteBuffer.wrap(data);
+		try {
+			if (in.remaining() < HEADER_SIZE || in.getInt() != MAGIC) {
+				throw new IOException("not a snapshot");
+			}
+			short version = in.getShort();
+			if (version != VERSION) {
+				throw new IOException("unsupported snapshot version "
+						+ version);
+			}
+			engine.readSnapshot(in);
+		} catch (BufferUnderflowException e) {
+			throw new IOException("snapshot truncated");
+		}
+	}
+
+	public static void write(GameEngine engine, File file) throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(toBytes(engine));
+		} finally {
+			out.close();
+		}
+	}
+
+	public static void read(GameEngine engine, File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		ByteArrayOutputStream data = new ByteArrayOutputStream(
+				(int) file.length());
+		try {
+			byte[] buffer = new byte[4096];
+			int count;
+			while ((count = in.read(buffer)) != -1) {
+				data.write(buffer, 0, count);
+			}
+		} finally {
+			in.close();
+		}
+		restore(engine, data.toByteArray());
+	}
+
+}
@@ -0,0 +1,96 @@
+package cs175.hw4.snakes;
+
+/**
+ * Histogram: a fixed-size histogram of durations in nanoseconds. Samples are
+ * counted in buckets of BUCKET_NANOS; the last bucket also takes everything
+ * beyond the range. Recording never allocates. A histogram is written by one
+ * thread; other threads may read it, seeing slightly stale numbers.
+ */
+public class Histogram {
+
+	public static final long BUCKET_NANOS = 50000L; // 0.05 ms
+
+	private final int[] mBuckets;
+	private final long mJankNanos;
+
+	private long mCount;
+	private long mMax;
+	private long mJankCount;
+
+	/**
+	 * @param bucketCount
+	 *            number of buckets; the range covered is bucketCount *
+	 *            BUCKET_NANOS
+	 * @param jankNanos
+	 *            samples longer than this are counted as jank
+	 */
+	public Histogram(int bucketCount, long jankNanos) {
+		mBuckets = new int[bucketCount];
+		mJankNanos = jankNanos;
+	}
+
+	public void record(long nanos) {
+		if (nanos < 0)
+			nanos = 0;
+
+		long bucket = nanos / BUCKET_NANOS;
+		if (bucket >= mBuckets.length) {
+			bucket = mBuckets.length - 1;
+		}
+		mBuckets[(int) bucket]++;
+		mCount++;
+		if (nanos > mMax) {
+			mMax = nanos;
+		}
+		if (nanos > mJankNanos) {
+			mJankCount++;
+		}
+	}
+
+	public long getCount() {
+		return mCount;
+	}
+
+	public long getMax() {
+		return mMax;
+	}
+
+	/**
+	 * @return number of samples longer than the jank threshold
+	 */
+	public long getJankCount() {
+		return mJankCount;
+	}
+
+	/**
+	 * @param percent
+	 *            0 to 100
+	 * @return the upper edge of the bucket holding the given percentile, in
+	 *         nanoseconds, or 0 if nothing was recorded
+	 */
+	public long getPercentile(int percent) {
+		long count = mCount;
+		if (count == 0)
+			return 0;
+
+		long rank = (count * percent + 99) / 100;
+		long seen = 0;
+		for (int i = 0; i < mBuckets.length; i++) {
+			seen += mBuckets[i];
+			if (seen >= rank) {
+				return (i + 1) * BUCKET_NANOS;
+			}
+		}
+		return mBuckets.length * BUCKET_NANOS;
+	}
+
+	public void reset() {
+		for (int i = 0; i < mBuckets.length; i++) {
+			mBuckets[i] = 0;
+		}
+		mCount = 0;
+		mMax = 0;
+		mJankCount = 0;
+	}
+
+}
@@ -0,0 +1,95 @@
+package cs175.hw4.snakes;
+
+/**
+ * InputQueue: the turns the player made that the game has not applied yet,
+ * each with the time it was made. The UI thread offers turns and the game
+ * loop thread takes one per tick, so two taps within one tick turn the snake
+ * on two ticks instead of the second overwriting the first.
+ *
+ * The queue is a fixed ring with exactly one producer and one consumer. Each
+ * side only writes its own index, and the volatile writes of the indices
+ * publish the slots, so neither side ever takes a lock or waits for the
+ * other. When the ring is full further turns are dropped: a player tapping
+ * that far ahead of the snake gains nothing from more.
+ */
+public class InputQueue {
+
+	/**
+	 * A power of two, so an index maps to its slot with a mask.
+	 */
+	private static final int CAPACITY = 8;
+	private static final int MASK = CAPACITY - 1;
+
+	private final int[] mInputs = new int[CAPACITY];
+	private final long[] mTimes = new long[CAPACITY];
+
+	/**
+	 * mHead: the number of turns taken, written by the consumer only. mTail:
+	 * the number of turns offered, written by the producer only.
+	 */
+	private volatile int mHead;
+	private volatile int mTail;
+
+	/**
+	 * mPolledTime: when the turn poll() last returned was made; only used by
+	 * the consumer
+	 */
+	private long mPolledTime;
+
+	/**
+	 * Adds a turn. Called from the producer thread only.
+	 *
+	 * @param input
+	 *            GameEngine.INPUT_LEFT or INPUT_RIGHT
+	 * @param nanos
+	 *            when the turn was made, from System.nanoTime()
+	 * @return false if the queue is full and the turn was dropped
+	 */
+	public boolean offer(int input, long nanos) {
+		int tail = mTail;
+		if (tail - mHead == CAPACITY)
+			return false;
+
+		mInputs[tail & MASK] = input;
+		mTimes[tail & MASK] = nanos;
+		mTail = tail + 1;
+		return true;
+	}
+
+	/**
+	 * Takes the oldest turn. Called from the consumer thread only.
+	 *
+	 * @return the turn, or GameEngine.INPUT_NONE if there is none
+	 */
+	public int poll() {
+		int head = mHead;
+		if (head == mTail)
+			return GameEngine.INPUT_NONE;
+
+		int input = mInputs[head & MASK];
+		mPolledTime = mTimes[head & MASK];
+		mHead = head + 1;
+		return input;
+	}
+
+	/**
+	 * @return when the turn poll() last returned was made, from
+	 *         System.nanoTime()
+	 */
+	public long getPolledTime() {
+		return mPolledTime;
+	}
+
+	/**
+	 * Drops every queued turn. Called from the producer thread, and only while
+	 * the consumer is not polling, such as while the game loop is stopped.
+	 */
+	public void clear() {
+		mHead = mTail;
+	}
+
+	public boolean isEmpty() {
+		return mHead == mTail;
+	}
+
+}
@@ -0,0 +1,181 @@
+package cs175.hw4.snakes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * Leaderboard: the results of finished games in the scores table of MyDb.
+ * The insert and the high score statement are compiled once when the
+ * database is opened and reused until it is closed. The top score queries
+ * are run with rawQuery() every time, each cursor closed once read; the same
+ * SQL text lets SQLiteDatabase reuse the statement it compiled from its
+ * cache. A leaderboard is not thread-safe; it is meant to be used from one
+ * background thread, as ScoreStore does.
+ */
+public class Leaderboard {
+
+	public static final String DEFAULT_PLAYER = "player 1";
+
+	/**
+	 * One finished game.
+	 */
+	public static class Entry {
+
+		private final String mPlayer;
+		private final int mLevel;
+		private final long mScore;
+		private final long mPlayedAt;
+
+		/**
+		 * @param playedAt
+		 *            System.currentTimeMillis() when the game ended
+		 */
+		public Entry(String player, int level, long score, long playedAt) {
+			mPlayer = player;
+			mLevel = level;
+			mScore = score;
+			mPlayedAt = playedAt;
+		}
+
+		public String getPlayer() {
+			return mPlayer;
+		}
+
+		public int getLevel() {
+			return mLevel;
+		}
+
+		public long getScore() {
+			return mScore;
+		}
+
+		public long getPlayedAt() {
+			return mPlayedAt;
+		}
+	}
+
+	private final MyDb mDb;
+
+	private SQLiteDatabase mOpenDb;
+	private SQLiteStatement mInsert;
+	private SQLiteStatement mHighScore;
+
+	/**
+	 * The top score queries, overall, of a level and of a player on a level.
+	 */
+	private static final String TOP_SCORES = "select player, level, score,"
+			+ " played_at from scores order by score desc limit ?";
+	private static final String TOP_SCORES_OF_LEVEL = "select player, level,"
+			+ " score, played_at from scores where level = ?"
+			+ " order by score desc limit ?";
+	private static final String TOP_SCORES_OF_PLAYER = "select player, level,"
+			+ " score, played_at from scores where player = ? and level = ?"
+			+ " order by score desc limit ?";
+
+	public Leaderboard(Context context) {
+		mDb = new MyDb(context);
+	}
+
+	private SQLiteDatabase open() {
+		if (mOpenDb == null) {
+			mOpenDb = mDb.getWritableDatabase();
+			mInsert = mOpenDb.compileStatement("insert into scores"
+					+ " (player, level, score, played_at) values (?, ?, ?, ?)");
+			mHighScore = mOpenDb
+					.compileStatement("select ifnull(max(score), 0) from scores");
+		}
+		return mOpenDb;
+	}
+
+	/**
+	 * @return the best score of all games, 0 if there are none
+	 */
+	public long getHighScore() {
+		open();
+		return mHighScore.simpleQueryForLong();
+	}
+
+	/**
+	 * Adds the results of finished games in a single transaction.
+	 */
+	public void addAll(List<Entry> entries) {
+		SQLiteDatabase db = open();
+		db.beginTransaction();
+		try {
+			for (int i = 0; i < entries.size(); i++) {
+				Entry entry = entries.get(i);
+				mInsert.bindString(1, entry.getPlayer());
+				mInsert.bindLong(2, entry.getLevel());
+				mInsert.bindLong(3, entry.getScore());
+				mInsert.bindLong(4, entry.getPlayedAt());
+				mInsert.executeInsert();
+			}
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+	}
+
+	/**
+	 * @param level
+	 *            the level the games ended on, or -1 for all games
+	 * @param limit
+	 *            the largest number of entries returned
+	 * @return the best games, best first
+	 */
+	public List<Entry> getTopScores(int level, int limit) {
+		if (level < 0)
+			return runTopScores(TOP_SCORES,
+					new String[] { String.valueOf(limit) });
+
+		return runTopScores(TOP_SCORES_OF_LEVEL, new String[] {
+				String.valueOf(level), String.valueOf(limit) });
+	}
+
+	/**
+	 * @param limit
+	 *            the largest number of entries returned
+	 * @return the best games of a player on a level, best first
+	 */
+	public List<Entry> getTopScores(String player, int level, int limit) {
+		return runTopScores(TOP_SCORES_OF_PLAYER, new String[] { player,
+				String.valueOf(level), String.valueOf(limit) });
+	}
+
+	/**
+	 * Runs a top score query and reads its rows, closing the cursor.
+	 */
+	private List<Entry> runTopScores(String sql, String[] args) {
+		Cursor cursor = open().rawQuery(sql, args);
+		try {
+			List<Entry> entries = new ArrayList<Entry>();
+			while (cursor.moveToNext()) {
+				entries.add(new Entry(cursor.getString(0), cursor.getInt(1),
+						cursor.getLong(2), cursor.getLong(3)));
+			}
+			return entries;
+		} finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Closes the statements and the database. The leaderboard opens them
+	 * again when it is used next.
+	 */
+	public void close() {
+		if (mOpenDb == null)
+			return;
+
+		mInsert.close();
+		mHighScore.close();
+		mDb.close();
+		mOpenDb = null;
+	}
+
+}
@@ -0,0 +1,145 @@
+package cs175.hw4.snakes;
+
+/**
+ * Level: one level of the game as decoded from a LevelPack. Positions are
+ * stored as packed board-relative coordinates so the same level fits any
+ * screen: an anchor (the start, the middle or the end of the axis) and a
+ * signed offset from it. The walls are a list of rectangles that either add
+ * walls or cut holes into them, applied in order.
+ */
+public class Level {
+
+	/**
+	 * Anchors of a coordinate. END is one past the last tile, so the exit hole
+	 * on the right border sits at END + 0.
+	 */
+	public static final int ANCHOR_START = 0;
+	public static final int ANCHOR_CENTER = 1;
+	public static final int ANCHOR_END = 2;
+
+	/**
+	 * Kinds of rectangle.
+	 */
+	public static final int RECT_WALL = 0;
+	public static final int RECT_HOLE = 1;
+
+	/**
+	 * Number of ints describing one rectangle: kind, x0, y0, x1, y1 with the
+	 * end coordinates exclusive.
+	 */
+	public static final int RECT_SIZE = 5;
+
+	private final int mMoveDelay;
+	private final int mAppleCount;
+	private final int mStartX;
+	private final int mStartY;
+	private final int mStartLength;
+	private final int mStartDirection;
+	private final int mExitX;
+	private final int mExitY;
+	private final int[] mRects;
+
+	/**
+	 * @param moveDelay
+	 *            milliseconds between snake movements at the start
+	 * @param appleCount
+	 *            number of apples placed when the level starts
+	 * @param startX
+	 *            coordinate of the snake's head
+	 * @param startY
+	 *            coordinate of the snake's head
+	 * @param startLength
+	 *            number of cells of the snake, laid out behind the head
+	 * @param startDirection
+	 *            one of GameEngine.NORTH, SOUTH, EAST, WEST
+	 * @param exitX
+	 *            coordinate of the cell the snake leaves the level through
+	 * @param exitY
+	 *            coordinate of the cell the snake leaves the level through
+	 * @param rects
+	 *            RECT_SIZE ints per rectangle
+	 */
+	public Level(int moveDelay, int appleCount, int startX, int startY,
+			int startLength, int startDirection, int exitX, int exitY,
+			int[] rects) {
+		mMoveDelay = moveDelay;
+		mAppleCount = appleCount;
+		mStartX = startX;
+		mStartY = startY;
+		mStartLength = startLength;
+		mStartDirection = startDirection;
+		mExitX = exitX;
+		mExitY = exitY;
+		mRects = rects;
+	}
+
+	/**
+	 * Packs an anchor and an offset in -128..127 into a coordinate.
+	 */
+	public static int coord(int anchor, int offset) {
+		return (anchor << 8) | (offset & 0xff);
+	}
+
+	/**
+	 * @param coord
+	 *            a packed coordinate
+	 * @param size
+	 *            the number of tiles along the axis
+	 * @return the tile the coordinate refers to on that axis
+	 */
+	public static int resolve(int coord, int size) {
+		int anchor = coord >> 8;
+		int offset = (byte) coord;
+		if (anchor == ANCHOR_CENTER)
+			return size / 2 + offset;
+		if (anchor == ANCHOR_END)
+			return size + offset;
+		return offset;
+	}
+
+	public int getMoveDelay() {
+		return mMoveDelay;
+	}
+
+	public int getAppleCount() {
+		return mAppleCount;
+	}
+
+	public int getStartX() {
+		return mStartX;
+	}
+
+	public int getStartY() {
+		return mStartY;
+	}
+
+	public int getStartLength() {
+		return mStartLength;
+	}
+
+	public int getStartDirection() {
+		return mStartDirection;
+	}
+
+	public int getExitX() {
+		return mExitX;
+	}
+
+	public int getExitY() {
+		return mExitY;
+	}
+
+	public int getRectCount() {
+		return mRects.length / RECT_SIZE;
+	}
+
+	/**
+	 * @return RECT_SIZE ints per rectangle: kind, x0, y0, x1, y1. The array
+	 *         is the level's own, shared by everyone playing it, and must
+	 *         not be changed.
+	 */
+	public int[] getRects() {
+		return mRects;
+	}
+
+}
@@ -0,0 +1,212 @@
+package cs175.hw4.snakes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * LevelPack: a set of levels in a compact binary format. The pack starts with
+ * an index of level offsets. Every level is decoded once, when the pack is
+ * read, so asking for a level does no work, and as the decoded levels never
+ * change a pack may be shared by engines on several threads.
+ *
+ * <pre>
+ * int    MAGIC
+ * short  VERSION
+ * short  level count
+ * int    offset of each level from the start of the pack
+ * per level:
+ *   short  move delay
+ *   byte   apple count
+ *   short  start x, start y  (packed coordinates, see Level.coord)
+ *   byte   start length
+ *   byte   start direction
+ *   short  exit x, exit y
+ *   short  rectangle count
+ *   per rectangle: byte kind, short x0, y0, x1, y1
+ * </pre>
+ *
+ * All values are big-endian.
+ */
+public class LevelPack {
+
+	public static final int MAGIC = 0x534e4c50; // "SNLP"
+	public static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 8;
+
+	/**
+	 * Bytes of a level before its rectangles, and of each rectangle
+	 */
+	private static final int LEVEL_HEADER_SIZE = 15;
+	private static final int RECT_BYTES = 9;
+
+	private final byte[] mData;
+	private final int mLevelCount;
+	private final Level[] mLevels;
+
+	/**
+	 * @param data
+	 *            the whole pack
+	 * @throws IOException
+	 *             if the data is not a level pack this code understands
+	 */
+	public LevelPack(byte[] data) throws IOException {
+		mData = data;
+		if (data.length < HEADER_SIZE || readInt(0) != MAGIC) {
+			throw new IOException("not a level pack");
+		}
+		if (readShort(4) != VERSION) {
+			throw new IOException("unsupported level pack version "
+					+ readShort(4));
+		}
+		mLevelCount = readShort(6);
+		if (mLevelCount <= 0 || data.length < HEADER_SIZE + 4 * mLevelCount) {
+			throw new IOException("level pack index is truncated");
+		}
+		mLevels = new Level[mLevelCount];
+		for (int i = 0; i < mLevelCount; i++) {
+			mLevels[i] = decode(i);
+		}
+	}
+
+	/**
+	 * Reads a whole pack from a stream, which is left open.
+	 */
+	public static LevelPack read(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int count;
+		while ((count = in.read(buffer)) != -1) {
+			out.write(buffer, 0, count);
+		}
+		return new LevelPack(out.toByteArray());
+	}
+
+	public int getLevelCount() {
+		return mLevelCount;
+	}
+
+	/**
+	 * @param index
+	 *            0 based level number, less than getLevelCount()
+	 * @return the decoded level
+	 */
+	public Level getLevel(int index) {
+		return mLevels[index];
+	}
+
+	/**
+	 * @throws IOException
+	 *             if the level does not lie within the pack or holds values
+	 *             no level can have
+	 */
+	private Level decode(int index) throws IOException {
+		int pos = readInt(HEADER_SIZE + 4 * index);
+		if (pos < HEADER_SIZE + 4 * mLevelCount
+				|| pos > mData.length - LEVEL_HEADER_SIZE) {
+			throw new IOException("level " + index + " lies outside the pack");
+		}
+		int moveDelay = readShort(pos);
+		int appleCount = mData[pos + 2] & 0xff;
+		int startX = readCoord(pos + 3, index);
+		int startY = readCoord(pos + 5, index);
+		int startLength = mData[pos + 7] & 0xff;
+		int startDirection = mData[pos + 8];
+		int exitX = readCoord(pos + 9, index);
+		int exitY = readCoord(pos + 11, index);
+		int rectCount = readShort(pos + 13);
+		pos += LEVEL_HEADER_SIZE;
+		if (startDirection < GameEngine.NORTH
+				|| startDirection > GameEngine.WEST) {
+			throw new IOException("level " + index + " has bad direction "
+					+ startDirection);
+		}
+		if (rectCount > (mData.length - pos) / RECT_BYTES) {
+			throw new IOException("level " + index + " is truncated");
+		}
+
+		int[] rects = new int[rectCount * Level.RECT_SIZE];
+		for (int i = 0; i < rects.length; i += Level.RECT_SIZE) {
+			rects[i] = mData[pos];
+			if (rects[i] != Level.RECT_WALL && rects[i] != Level.RECT_HOLE) {
+				throw new IOException("level " + index
+						+ " has bad rectangle kind " + rects[i]);
+			}
+			rects[i + 1] = readCoord(pos + 1, index);
+			rects[i + 2] = readCoord(pos + 3, index);
+			rects[i + 3] = readCoord(pos + 5, index);
+			rects[i + 4] = readCoord(pos + 7, index);
+			pos += RECT_BYTES;
+		}
+		return new Level(moveDelay, appleCount, startX, startY, startLength,
+				startDirection, exitX, exitY, rects);
+	}
+
+	/**
+	 * @return the packed coordinate at pos, see Level.coord
+	 */
+	private int readCoord(int pos, int index) throws IOException {
+		int coord = readShort(pos);
+		if (coord >> 8 > Level.ANCHOR_END) {
+			throw new IOException("level " + index + " has bad coordinate "
+					+ coord);
+		}
+		return coord;
+	}
+
+	private int readShort(int pos) {
+		return ((mData[pos] & 0xff) << 8) | (mData[pos + 1] & 0xff);
+	}
+
+	private int readInt(int pos) {
+		return (readShort(pos) << 16) | readShort(pos + 2);
+	}
+
+	/**
+	 * Writes levels as a pack, in the format described above.
+	 */
+	public static void write(Level[] levels, OutputStream out)
+			throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(body);
+		int[] offsets = new int[levels.length];
+		int bodyStart = HEADER_SIZE + 4 * levels.length;
+
+		for (int l = 0; l < levels.length; l++) {
+			Level level = levels[l];
+			offsets[l] = bodyStart + data.size();
+			data.writeShort(level.getMoveDelay());
+			data.writeByte(level.getAppleCount());
+			data.writeShort(level.getStartX());
+			data.writeShort(level.getStartY());
+			data.writeByte(level.getStartLength());
+			data.writeByte(level.getStartDirection());
+			data.writeShort(level.getExitX());
+			data.writeShort(level.getExitY());
+			data.writeShort(level.getRectCount());
+			int[] rects = level.getRects();
+			for (int i = 0; i < rects.length; i += Level.RECT_SIZE) {
+				data.writeByte(rects[i]);
+				data.writeShort(rects[i + 1]);
+				data.writeShort(rects[i + 2]);
+				data.writeShort(rects[i + 3]);
+				data.writeShort(rects[i + 4]);
+			}
+		}
+		data.flush();
+
+		DataOutputStream header = new DataOutputStream(out);
+		header.writeInt(MAGIC);
+		header.writeShort(VERSION);
+		header.writeShort(levels.length);
+		for (int offset : offsets) {
+			header.writeInt(offset);
+		}
+		body.writeTo(header);
+		header.flush();
+	}
+
+}
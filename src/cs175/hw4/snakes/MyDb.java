@@ -4,40 +4,93 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Build;
 
 /**
- * A SQLiteOpenhelper to create "snake.db" and table hw4
- * 
+ * A SQLiteOpenhelper to create "snake.db" and its leaderboard table scores,
+ * one row per finished game. Upgrades migrate the existing data instead of
+ * dropping it.
+ *
  */
 public class MyDb extends SQLiteOpenHelper {
 
+	/**
+	 * Version 3: table hw4 with a single high score row. Version 4: table
+	 * scores, one row per game. Version 5: index scores_by_player.
+	 */
+	public static final int VERSION = 5;
+
 	/**
 	 * constructor
-	 * 
+	 *
 	 * @param context
 	 */
 	public MyDb(Context context) {
-		super(context, "snake.db", null, 3);
+		super(context, "snake.db", null, VERSION);
 		// activity, database name, , version
 	}
 
 	@Override
 	public void onCreate(SQLiteDatabase db) {
-		// create table at first time
-		String sql = "create table if not exists hw4 (name varchar(50), speed integer, HIGH_SCORE integer, score intger)";
-		db.execSQL(sql);
+		createScores(db);
+	}
 
-		Cursor rawQuery = db.rawQuery("select * from hw4", null);
-		if (rawQuery.getCount() == 0) {
-			db.execSQL("insert into hw4 (name, HIGH_SCORE) values('player 1', 0)");
+	@Override
+	public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+		// runs inside a transaction; each step migrates one version further
+		if (oldVersion < 4) {
+			createScores(db);
+			if (hasTable(db, "hw4")) {
+				// the old high score becomes a game on the first level
+				db.execSQL("insert into scores (player, level, score, played_at)"
+						+ " select name, 0, HIGH_SCORE, 0 from hw4"
+						+ " where HIGH_SCORE > 0");
+				db.execSQL("drop table hw4");
+			}
+		}
+		if (oldVersion < 5) {
+			createScores(db);
 		}
 	}
 
 	@Override
-	public void onUpgrade(SQLiteDatabase db, int arg1, int arg2) {
-		// drop and create table
-		db.execSQL("drop table if exists hw4");
-		onCreate(db);
+	public void onOpen(SQLiteDatabase db) {
+		super.onOpen(db);
+		// write-ahead logging lets reads go on while results are written
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
+				&& !db.isReadOnly()) {
+			db.enableWriteAheadLogging();
+		}
+	}
+
+	/**
+	 * Creates the leaderboard and whichever of its indexes are missing.
+	 * scores_by_player serves the top scores of a player on a level,
+	 * scores_by_level the top scores of a level, scores_by_score the top
+	 * scores overall, all straight from the index in score order.
+	 */
+	private static void createScores(SQLiteDatabase db) {
+		db.execSQL("create table if not exists scores ("
+				+ "_id integer primary key autoincrement, "
+				+ "player text not null, " + "level integer not null, "
+				+ "score integer not null, " + "played_at integer not null)");
+		db.execSQL("create index if not exists scores_by_player"
+				+ " on scores (player, level, score desc)");
+		db.execSQL("create index if not exists scores_by_level"
+				+ " on scores (level, score desc)");
+		db.execSQL("create index if not exists scores_by_score"
+				+ " on scores (score desc)");
+	}
+
+	private static boolean hasTable(SQLiteDatabase db, String name) {
+		Cursor cursor = db.rawQuery(
+				"select 1 from sqlite_master where type = 'table' and name = ?",
+				new String[] { name });
+		try {
+			return cursor.moveToFirst();
+		} finally {
+			cursor.close();
+		}
 	}
 
 }
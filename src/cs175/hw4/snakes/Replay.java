@@ -0,0 +1,244 @@
+package cs175.hw4.snakes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Replay: one recorded game, from a new game to the step that ended it. A
+ * game is fully determined by the board, where it started, the seed its
+ * apples were placed from and the turns the player made, so those are all a
+ * replay holds, together with how the game ended to check a replay against.
+ *
+ * Replays are stored in a compact binary form: a header, then one varint per
+ * turn holding the number of steps since the previous turn and, in the
+ * lowest bit, whether the turn was to the right.
+ */
+public class Replay {
+
+	private static final int MAGIC = 0x534e5250; // "SNRP"
+	private static final int VERSION = 1;
+
+	private final int mXTileCount;
+	private final int mYTileCount;
+	private final int mLevel;
+	private final long mLives;
+	private final long mScore;
+	private final long mSeed;
+
+	/**
+	 * mTicks, mInputs: the step each turn was made before, and the turn,
+	 * GameEngine.INPUT_LEFT or INPUT_RIGHT
+	 */
+	private final int[] mTicks;
+	private final int[] mInputs;
+
+	private final int mEndTick;
+	private final int mEndMode;
+	private final long mEndScore;
+
+	/**
+	 * @param ticks
+	 *            for each turn the number of steps taken before it, in
+	 *            ascending order
+	 * @param inputs
+	 *            the turns
+	 * @param endTick
+	 *            the step the game ended on
+	 * @param endMode
+	 *            LOSE, WIN or GAMEOVER
+	 * @param endScore
+	 *            the score the game ended with
+	 */
+	public Replay(int xTileCount, int yTileCount, int level, long lives,
+			long score, long seed, int[] ticks, int[] inputs, int endTick,
+			int endMode, long endScore) {
+		mXTileCount = xTileCount;
+		mYTileCount = yTileCount;
+		mLevel = level;
+		mLives = lives;
+		mScore = score;
+		mSeed = seed;
+		mTicks = ticks;
+		mInputs = inputs;
+		mEndTick = endTick;
+		mEndMode = endMode;
+		mEndScore = endScore;
+	}
+
+	public int getXTileCount() {
+		return mXTileCount;
+	}
+
+	public int getYTileCount() {
+		return mYTileCount;
+	}
+
+	/**
+	 * @return the level the game was played on
+	 */
+	public int getLevel() {
+		return mLevel;
+	}
+
+	/**
+	 * @return the lives left when the game started
+	 */
+	public long getLives() {
+		return mLives;
+	}
+
+	/**
+	 * @return the score when the game started
+	 */
+	public long getScore() {
+		return mScore;
+	}
+
+	public long getSeed() {
+		return mSeed;
+	}
+
+	public int getInputCount() {
+		return mTicks.length;
+	}
+
+	/**
+	 * @return the number of steps taken before the turn was made
+	 */
+	public int getInputTick(int index) {
+		return mTicks[index];
+	}
+
+	public int getInput(int index) {
+		return mInputs[index];
+	}
+
+	public int getEndTick() {
+		return mEndTick;
+	}
+
+	public int getEndMode() {
+		return mEndMode;
+	}
+
+	public long getEndScore() {
+		return mEndScore;
+	}
+
+	/**
+	 * @return the replay in its binary form
+	 */
+	public byte[] toBytes() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(
+				32 + 2 * mTicks.length);
+		writeVarint(out, MAGIC);
+		writeVarint(out, VERSION);
+		writeVarint(out, mXTileCount);
+		writeVarint(out, mYTileCount);
+		writeVarint(out, mLevel);
+		writeVarint(out, mLives);
+		writeVarint(out, mScore);
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			out.write((int) (mSeed >>> shift));
+		}
+
+		writeVarint(out, mTicks.length);
+		int tick = 0;
+		for (int i = 0; i < mTicks.length; i++) {
+			long delta = mTicks[i] - tick;
+			writeVarint(out, delta << 1
+					| (mInputs[i] == GameEngine.INPUT_RIGHT ? 1 : 0));
+			tick = mTicks[i];
+		}
+
+		writeVarint(out, mEndTick);
+		writeVarint(out, mEndMode);
+		writeVarint(out, mEndScore);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Reads a replay written by toBytes().
+	 *
+	 * @throws IOException
+	 *             if the data is not a replay
+	 */
+	public static Replay fromBytes(byte[] data) throws IOException {
+		Reader in = new Reader(data);
+		if (in.readVarint() != MAGIC) {
+			throw new IOException("not a replay");
+		}
+		long version = in.readVarint();
+		if (version != VERSION) {
+			throw new IOException("unsupported replay version " + version);
+		}
+		int xTileCount = (int) in.readVarint();
+		int yTileCount = (int) in.readVarint();
+		int level = (int) in.readVarint();
+		long lives = in.readVarint();
+		long score = in.readVarint();
+		long seed = 0;
+		for (int i = 0; i < 8; i++) {
+			seed = seed << 8 | in.readByte();
+		}
+
+		int count = (int) in.readVarint();
+		int[] ticks = new int[count];
+		int[] inputs = new int[count];
+		int tick = 0;
+		for (int i = 0; i < count; i++) {
+			long value = in.readVarint();
+			tick += (int) (value >>> 1);
+			ticks[i] = tick;
+			inputs[i] = (value & 1) != 0 ? GameEngine.INPUT_RIGHT
+					: GameEngine.INPUT_LEFT;
+		}
+
+		int endTick = (int) in.readVarint();
+		int endMode = (int) in.readVarint();
+		long endScore = in.readVarint();
+		return new Replay(xTileCount, yTileCount, level, lives, score, seed,
+				ticks, inputs, endTick, endMode, endScore);
+	}
+
+	/**
+	 * Writes a non-negative number seven bits at a time, lowest first, with
+	 * the high bit set on all bytes but the last.
+	 */
+	private static void writeVarint(ByteArrayOutputStream out, long value) {
+		while ((value & ~0x7fL) != 0) {
+			out.write((int) (value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	private static class Reader {
+
+		private final byte[] mData;
+		private int mPos;
+
+		Reader(byte[] data) {
+			mData = data;
+		}
+
+		int readByte() throws IOException {
+			if (mPos >= mData.length) {
+				throw new IOException("replay truncated");
+			}
+			return mData[mPos++] & 0xff;
+		}
+
+		long readVarint() throws IOException {
+			long value = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				int b = readByte();
+				value |= (long) (b & 0x7f) << shift;
+				if ((b & 0x80) == 0)
+					return value;
+			}
+			throw new IOException("malformed varint");
+		}
+	}
+
+}
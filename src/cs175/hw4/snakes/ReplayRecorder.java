@@ -0,0 +1,115 @@
+package cs175.hw4.snakes;
+
+/**
+ * ReplayRecorder: records the game an engine is playing into a Replay. Call
+ * begin() right after the engine started a new game, turn() for every turn
+ * made while it runs and end() once a step ended it. All of them must be
+ * called while holding the engine's lock, as SnakeView does.
+ */
+public class ReplayRecorder {
+
+	private GameEngine mEngine;
+
+	private int mXTileCount;
+	private int mYTileCount;
+	private int mLevel;
+	private long mLives;
+	private long mScore;
+	private long mSeed;
+
+	/**
+	 * mTurns: the turns made, each packed as its tick shifted left by one,
+	 * plus 1 for a turn to the right. Doubled by prepareTurn() when full.
+	 */
+	private int[] mTurns = new int[64];
+	private int mTurnCount;
+
+	/**
+	 * Starts recording the game the engine has just started.
+	 */
+	public void begin(GameEngine engine) {
+		mEngine = engine;
+		mXTileCount = engine.getXTileCount();
+		mYTileCount = engine.getYTileCount();
+		mLevel = engine.getLevel();
+		mLives = engine.getLives();
+		mScore = engine.getScore();
+		mSeed = engine.getSeed();
+		mTurnCount = 0;
+	}
+
+	/**
+	 * @return true while a game is being recorded
+	 */
+	public boolean isRecording() {
+		return mEngine != null;
+	}
+
+	/**
+	 * Makes room for the next turn, so recording it does not allocate. Call
+	 * between steps.
+	 */
+	public void prepareTurn() {
+		if (mTurnCount == mTurns.length) {
+			mTurns = grow(mTurns);
+		}
+	}
+
+	/**
+	 * Records a turn about to be passed to the engine.
+	 *
+	 * @param input
+	 *            GameEngine.INPUT_LEFT or INPUT_RIGHT
+	 */
+	public void turn(int input) {
+		if (mEngine == null || input == GameEngine.INPUT_NONE)
+			return;
+
+		prepareTurn();
+		mTurns[mTurnCount] = mEngine.getTick() << 1
+				| (input == GameEngine.INPUT_RIGHT ? 1 : 0);
+		mTurnCount++;
+	}
+
+	/**
+	 * Finishes the recording after the step that ended the game.
+	 *
+	 * @param outcome
+	 *            the mode the step returned
+	 * @return the recorded game, or null if nothing was being recorded
+	 */
+	public Replay end(int outcome) {
+		if (mEngine == null)
+			return null;
+
+		long score = outcome == GameEngine.GAMEOVER ? mEngine.getFinalScore()
+				: mEngine.getScore();
+		int[] ticks = new int[mTurnCount];
+		int[] inputs = new int[mTurnCount];
+		for (int i = 0; i < mTurnCount; i++) {
+			ticks[i] = mTurns[i] >>> 1;
+			inputs[i] = (mTurns[i] & 1) != 0 ? GameEngine.INPUT_RIGHT
+					: GameEngine.INPUT_LEFT;
+		}
+		Replay replay = new Replay(mXTileCount, mYTileCount, mLevel, mLives,
+				mScore, mSeed, ticks, inputs, mEngine.getTick(), outcome,
+				score);
+		mEngine = null;
+		return replay;
+	}
+
+	/**
+	 * Drops the recording, for games that are not played from their start,
+	 * such as a restored one.
+	 */
+	public void cancel() {
+		mEngine = null;
+	}
+
+	private static int[] grow(int[] array) {
+		int[] grown = new int[array.length * 2];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+}
@@ -0,0 +1,68 @@
+package cs175.hw4.snakes;
+
+/**
+ * Replayer: plays recorded games again as fast as the engine steps, without
+ * a view, and checks that they end the way they were recorded. Useful to
+ * reproduce a reported game, as a regression check after changing the rules
+ * and as a workload made of real sessions.
+ */
+public class Replayer {
+
+	private final LevelPack mLevels;
+
+	public Replayer(LevelPack levels) {
+		mLevels = levels;
+	}
+
+	/**
+	 * Plays a recorded game to its end.
+	 *
+	 * @return the engine, in the state the game ended in
+	 */
+	public GameEngine play(Replay replay) {
+		GameEngine engine = new GameEngine(mLevels, replay.getXTileCount(),
+				replay.getYTileCount());
+		engine.setProgress(replay.getLevel(), replay.getLives(),
+				replay.getScore());
+		engine.newGame(replay.getSeed());
+		engine.setMode(GameEngine.RUNNING);
+
+		int next = 0;
+		int count = replay.getInputCount();
+		int mode = GameEngine.RUNNING;
+		while (mode == GameEngine.RUNNING
+				&& engine.getTick() < replay.getEndTick()) {
+			while (next < count
+					&& replay.getInputTick(next) == engine.getTick()) {
+				engine.turn(replay.getInput(next++));
+			}
+			mode = engine.step(GameEngine.INPUT_NONE);
+		}
+		return engine;
+	}
+
+	/**
+	 * @return true if the game ends on the same step, in the same mode and
+	 *         with the same score as when it was recorded
+	 */
+	public boolean verify(Replay replay) {
+		GameEngine engine = play(replay);
+		if (engine.getTick() != replay.getEndTick())
+			return false;
+
+		int mode = engine.getMode();
+		if (replay.getEndMode() == GameEngine.WIN) {
+			// a cleared level leaves the engine ready for the next one
+			if (mode != GameEngine.READY
+					|| engine.getLevel() != replay.getLevel() + 1)
+				return false;
+		} else if (mode != replay.getEndMode()) {
+			return false;
+		}
+
+		long score = mode == GameEngine.GAMEOVER ? engine.getFinalScore()
+				: engine.getScore();
+		return score == replay.getEndScore();
+	}
+
+}
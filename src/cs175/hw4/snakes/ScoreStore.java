@@ -0,0 +1,148 @@
+package cs175.hw4.snakes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import android.content.Context;
+
+/**
+ * ScoreStore: the high score, kept in memory, in front of the Leaderboard
+ * the results of finished games are written behind to. The high score is
+ * loaded once when the store is created; after that reads are served from
+ * memory and results are written on a background thread. Results added while
+ * a write is still pending join it, so a burst of games costs one
+ * transaction. None of the methods touch the database on the calling thread.
+ */
+public class ScoreStore {
+
+	private final Leaderboard mLeaderboard;
+	private final Runnable mOnLoaded;
+
+	/**
+	 * mWriter: the one thread the database is used on, so loads, writes and
+	 * closing run in the order they were asked for
+	 */
+	private final ExecutorService mWriter = Executors
+			.newSingleThreadExecutor(new ThreadFactory() {
+
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "ScoreStore");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	private long mHighScore;
+	private boolean mLoaded;
+
+	/**
+	 * mPending: the results waiting to be written; a write is scheduled
+	 * whenever it is not empty
+	 */
+	private List<Leaderboard.Entry> mPending = new ArrayList<Leaderboard.Entry>();
+
+	/**
+	 * @param context
+	 * @param onLoaded
+	 *            run on the background thread once the stored score has been
+	 *            read, or null
+	 */
+	public ScoreStore(Context context, Runnable onLoaded) {
+		mLeaderboard = new Leaderboard(context);
+		mOnLoaded = onLoaded;
+		mWriter.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				load();
+			}
+		});
+	}
+
+	/**
+	 * @return the high score; 0 until the stored one has been read
+	 */
+	public synchronized long getHighScore() {
+		return mHighScore;
+	}
+
+	public synchronized boolean isLoaded() {
+		return mLoaded;
+	}
+
+	/**
+	 * Records the result of a finished game, writing it in the background.
+	 *
+	 * @return true if the score is the new high score
+	 */
+	public synchronized boolean addResult(int level, long score) {
+		if (mPending.isEmpty()) {
+			mWriter.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					flush();
+				}
+			});
+		}
+		mPending.add(new Leaderboard.Entry(Leaderboard.DEFAULT_PLAYER, level,
+				score, System.currentTimeMillis()));
+
+		if (score <= mHighScore)
+			return false;
+
+		mHighScore = score;
+		return true;
+	}
+
+	/**
+	 * Closes the database once the writes already submitted are done, and
+	 * lets the background thread end after that. The store must not be used
+	 * once it is closed.
+	 */
+	public void close() {
+		mWriter.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				mLeaderboard.close();
+			}
+		});
+		mWriter.shutdown();
+	}
+
+	public boolean isClosed() {
+		return mWriter.isShutdown();
+	}
+
+	private void load() {
+		long stored = mLeaderboard.getHighScore();
+
+		synchronized (this) {
+			// a game finished before the load did may beat the stored score
+			if (stored > mHighScore) {
+				mHighScore = stored;
+			}
+			mLoaded = true;
+		}
+		if (mOnLoaded != null) {
+			mOnLoaded.run();
+		}
+	}
+
+	private void flush() {
+		List<Leaderboard.Entry> entries;
+		synchronized (this) {
+			entries = mPending;
+			mPending = new ArrayList<Leaderboard.Entry>();
+		}
+		if (!entries.isEmpty()) {
+			mLeaderboard.addAll(entries);
+		}
+	}
+
+}
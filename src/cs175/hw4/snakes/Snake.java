@@ -1,13 +1,12 @@
 package cs175.hw4.snakes;
 
 import android.app.Activity;
-import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.View.OnClickListener;
 import android.view.View.OnTouchListener;
 import android.widget.TextView;
 
@@ -16,7 +15,6 @@ import android.widget.TextView;
  * move next level. Any player can get highest 3 points.
  */
 public class Snake extends Activity {
-	private SQLiteDatabase db;
 	/**
 	 * Constants for desired direction of moving the snake
 	 */
@@ -27,6 +25,19 @@ public class Snake extends Activity {
 
 	private static String ICICLE_KEY = "snake-view";
 
+	/**
+	 * Intent extra: the number of tiles across and down the world, for a
+	 * world larger than the screen that scrolls with the snake, such as
+	 * 
+	 * <pre>
+	 * adb shell am start --ei cs175.hw4.snakes.WORLD_SIZE 1000 \
+	 *     cs175.hw4.snakes/.Snake
+	 * </pre>
+	 * 
+	 * Without it the world is as large as the screen.
+	 */
+	public static final String EXTRA_WORLD_SIZE = "cs175.hw4.snakes.WORLD_SIZE";
+
 	private SnakeView mSnakeView;
 
 	/**
@@ -41,13 +52,20 @@ public class Snake extends Activity {
 		setContentView(R.layout.snake_layout);
 
 		mSnakeView = (SnakeView) findViewById(R.id.snake);
-		mSnakeView.setDependentViews((TextView) findViewById(R.id.scores),
-				(TextView) findViewById(R.id.lives),
-				(TextView) findViewById(R.id.level),
-				(TextView) findViewById(R.id.text),
+		View arenaView = findViewById(R.id.arena);
+		mSnakeView.setDependentViews((TextView) findViewById(R.id.text),
 				findViewById(R.id.arrowContainer),
 				findViewById(R.id.background),
-				(TextView) findViewById(R.id.HigestScore));
+				(TextView) findViewById(R.id.HigestScore), arenaView);
+		arenaView.setOnClickListener(new OnClickListener() {
+
+			@Override
+			public void onClick(View v) {
+				mSnakeView.startArena();
+			}
+		});
+		int worldSize = getIntent().getIntExtra(EXTRA_WORLD_SIZE, 0);
+		mSnakeView.setWorldSize(worldSize, worldSize);
 
 		if (savedInstanceState == null) {
 			// set up a new game
@@ -93,27 +111,20 @@ public class Snake extends Activity {
 					// direction = 1;
 
 					// Direction is same as the quadrant which was clicked
-					Log.i("snakemoved1 " + direction, "snakemoved1 "
-							+ direction);
+					if (Trace.ENABLED)
+						Trace.event(Trace.DEBUG, Trace.TOUCH, direction,
+								(long) x);
 					mSnakeView.moveSnake(direction);
 
-					mSnakeView.updateLabels();
-
 				} else {
 					// If the game is not running then on touching any part of
 					// the screen
 					// we start the game by sending MOVE_UP signal to SnakeView
 					if (mSnakeView.getGameState() == SnakeView.GAMEOVER) {
-						try {
-							Thread.sleep(3000);
-							Log.i("mscore Sleeping done",
-									"mscore Sleeping done");
-						} catch (InterruptedException ex) {
-							Log.i("mscore Sleeping",
-									"YourApplicationName.toString()");
+						// taps right after the game ended were meant for it
+						if (mSnakeView.canDismissGameOver()) {
+							mSnakeView.setMode(SnakeView.READY);
 						}
-
-						mSnakeView.setMode(SnakeView.READY);
 					} else {
 						mSnakeView.moveSnake(MOVE_UP);
 					}
@@ -157,37 +168,20 @@ public class Snake extends Activity {
 		case KeyEvent.KEYCODE_DPAD_LEFT:
 			mSnakeView.moveSnake(MOVE_LEFT);
 			break;
+		case KeyEvent.KEYCODE_DPAD_CENTER:
+			mSnakeView.setAutopilot(!mSnakeView.isAutopilot());
+			return true;
+		case KeyEvent.KEYCODE_MENU:
+			// toggle the frame timing overlay, logging what it measured
+			// and the trace
+			Log.i("FrameStats", mSnakeView.getFrameStats().dump());
+			if (Trace.ENABLED)
+				Log.i("Trace", Trace.dump());
+			mSnakeView.setDebugOverlay(!mSnakeView.isDebugOverlay());
+			return true;
 		}
 
 		return super.onKeyDown(keyCode, msg);
 	}
 
-	private void loadDBData() {
-		// TODO Auto-generated method stub
-		int highscore = 0;
-		String result;
-		TextView displayScore = (TextView) findViewById(R.id.HigestScore);
-		MyDb sankeScore = new MyDb(this);
-		db = sankeScore.getReadableDatabase();
-
-		/****** Debug line 163 *****/
-
-		Cursor cursor = db.query("hw4", null, null, null, null, null, null);
-		if (cursor != null) {
-			highscore = cursor.getInt(cursor.getColumnIndex("HIGH_SCORE"));
-			result = Integer.toString(highscore);
-			displayScore.setText(result);
-
-			Log.i("what is result", "" + result);
-
-		} else {
-			result = "0";
-			displayScore.setText(result);
-			Log.i("what is result", " is it here" + result);
-		}
-
-		cursor.close();
-
-	}
-
 }
\ No newline at end of file
@@ -0,0 +1,127 @@
+package cs175.hw4.snakes;
+
+/**
+ * SnakeBody: the cells a snake covers, head first, kept in a growable ring
+ * buffer of packed cell indices (y * xTileCount + x). Pushing a new head and
+ * pulling off the tail are constant time and never allocate, and the body can
+ * be walked by index without boxing.
+ */
+public class SnakeBody {
+
+	private int[] mCells;
+	private int mMask;
+
+	/**
+	 * mHead: slot of the head in mCells. The body runs from there towards
+	 * increasing slots, wrapping around.
+	 */
+	private int mHead;
+	private int mSize;
+
+	/**
+	 * @param initialCapacity
+	 *            number of cells the body can hold before it has to grow
+	 */
+	public SnakeBody(int initialCapacity) {
+		int capacity = 8;
+		while (capacity < initialCapacity) {
+			capacity <<= 1;
+		}
+		mCells = new int[capacity];
+		mMask = capacity - 1;
+	}
+
+	public void clear() {
+		mHead = 0;
+		mSize = 0;
+	}
+
+	public int size() {
+		return mSize;
+	}
+
+	public boolean isEmpty() {
+		return mSize == 0;
+	}
+
+	/**
+	 * @return the cell of the head
+	 */
+	public int head() {
+		return mCells[mHead];
+	}
+
+	/**
+	 * @return the cell of the tail
+	 */
+	public int tail() {
+		return mCells[(mHead + mSize - 1) & mMask];
+	}
+
+	/**
+	 * @param index
+	 *            0 is the head, size() - 1 the tail
+	 * @return the cell at the given position along the body
+	 */
+	public int get(int index) {
+		return mCells[(mHead + index) & mMask];
+	}
+
+	/**
+	 * Adds a cell in front of the head, growing the buffer if it is full.
+	 */
+	public void pushHead(int cell) {
+		if (mSize == mCells.length) {
+			grow();
+		}
+		mHead = (mHead - 1) & mMask;
+		mCells[mHead] = cell;
+		mSize++;
+	}
+
+	/**
+	 * Adds a cell behind the tail, used when a body is built up or restored
+	 * head first.
+	 */
+	public void pushTail(int cell) {
+		if (mSize == mCells.length) {
+			grow();
+		}
+		mCells[(mHead + mSize) & mMask] = cell;
+		mSize++;
+	}
+
+	/**
+	 * Removes the tail.
+	 *
+	 * @return the cell the tail covered
+	 */
+	public int popTail() {
+		mSize--;
+		return mCells[(mHead + mSize) & mMask];
+	}
+
+	/**
+	 * Grows the buffer to hold at least the given number of cells, so the
+	 * body can reach that length without allocating.
+	 */
+	public void reserve(int capacity) {
+		while (mCells.length < capacity) {
+			grow();
+		}
+	}
+
+	/**
+	 * Doubles the capacity, unwrapping the body so the head is at slot 0.
+	 */
+	private void grow() {
+		int[] cells = new int[mCells.length << 1];
+		for (int i = 0; i < mSize; i++) {
+			cells[i] = mCells[(mHead + i) & mMask];
+		}
+		mCells = cells;
+		mMask = cells.length - 1;
+		mHead = 0;
+	}
+
+}
@@ -1,22 +1,21 @@
 package cs175.hw4.snakes;
 
-import java.util.ArrayList;
-import java.util.Random;
+import java.io.IOException;
+import java.io.InputStream;
 
 import android.content.Context;
 import android.content.res.Resources;
-import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
+import android.graphics.drawable.Drawable;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Message;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.View;
 import android.widget.TextView;
 
 /**
- * SnakeView: implementation of Snake game
+ * SnakeView: implementation of Snake game. The rules live in GameEngine; this
+ * view drives the engine, renders its state and shows the game's labels.
  */
 public class SnakeView extends TileView {
 	// private SQLiteDatabase db;
@@ -27,23 +26,12 @@ public class SnakeView extends TileView {
 	 * lost. static final ints are used instead of an enum for performance
 	 * reasons.
 	 */
-	private int mMode = READY;
-	public static final int PAUSE = 0;
-	public static final int READY = 1;
-	public static final int RUNNING = 2;
-	public static final int LOSE = 3;
-	public static final int WIN = 4;
-	public static final int GAMEOVER = 5;
-
-	/**
-	 * Current direction the snake is headed.
-	 */
-	private int mDirection = EAST;
-	private int mNextDirection = EAST;
-	private static final int NORTH = 1;
-	private static final int SOUTH = 2;
-	private static final int EAST = 3;
-	private static final int WEST = 4;
+	public static final int PAUSE = GameEngine.PAUSE;
+	public static final int READY = GameEngine.READY;
+	public static final int RUNNING = GameEngine.RUNNING;
+	public static final int LOSE = GameEngine.LOSE;
+	public static final int WIN = GameEngine.WIN;
+	public static final int GAMEOVER = GameEngine.GAMEOVER;
 
 	/**
 	 * Labels for the drawables that will be loaded into the TileView class
@@ -51,31 +39,20 @@ public class SnakeView extends TileView {
 	private static final int RED_STAR = 1;
 	private static final int YELLOW_STAR = 2;
 	private static final int GREEN_STAR = 3;
-
-	/**
-	 * mScore: Used to track the number of levels cleared mMoveDelay: number of
-	 * milliseconds between snake movements. This will increase as levels are
-	 * cleared.
-	 */
-	private long mScore = 0;
-	private long mLives = 3;
-	private int mCurrentLevel = 0;
-	private int maxLevels = 3;
-	private long mMoveDelay = 600;
-	/**
-	 * mLastMove: Tracks the absolute time when the snake last moved, and is
-	 * used to determine if a move should be made based on mMoveDelay.
-	 */
-	private long mLastMove;
+	private static final int BOT_STAR = 4;
 
 	/**
 	 * mStatusText: Text shows to the user in some run states
 	 */
 	private TextView mStatusText;
 
-	private TextView mscoreText;
-	private TextView mliveText;
-	private TextView mlevelText;
+	/**
+	 * The HUD fields showing the lives, the level and the score, drawn by
+	 * TileView while the game is running
+	 */
+	private static final int HUD_LIVES = 0;
+	private static final int HUD_LEVEL = 1;
+	private static final int HUD_SCORE = 2;
 
 	/**
 	 * mArrowsView: View which shows 4 arrows to signify 4 directions in which
@@ -89,46 +66,209 @@ public class SnakeView extends TileView {
 	private View mBackgroundView;
 
 	/**
-	 * mSnakeTrail: A list of Coordinates that make up the snake's body
-	 * mAList: The location of the snake
+	 * mArenaView: starts an arena, shown on the start screen
+	 */
+	private View mArenaView;
+
+	/**
+	 * mEngine: the game itself, playing the levels in assets/levels.pack. It
+	 * is stepped on the game loop thread and changed from the UI thread, so
+	 * both synchronize on it.
+	 */
+	private GameEngine mEngine;
+
+	private static final String LEVEL_PACK = "levels.pack";
+
+	private static final String SNAPSHOT_KEY = "snapshot";
+
+	/**
+	 * mDrawnWalls: the walls of the static layer, looked up by
+	 * getStaticTile() for the tiles the camera sees
+	 */
+	private Walls mDrawnWalls;
+
+	/**
+	 * mLoop: steps the engine on a thread of its own while the game is
+	 * running. mOutcome: the mode the last tick ended the game in, handed
+	 * over to the UI thread by mShowOutcome; RUNNING once it has been shown.
+	 * It is set and cleared under the engine lock, and the game takes no
+	 * taps while it is set, so a tap cannot start the next game before the
+	 * last one has been shown to be over.
 	 */
-	private ArrayList<Coordinate> mSnakeTrail = new ArrayList<Coordinate>();
-	private ArrayList<Coordinate> mAList = new ArrayList<Coordinate>();
+	private final GameLoop mLoop = new GameLoop(new GameTicker());
+	private volatile int mOutcome = RUNNING;
 
-	private Walls mwall;
+	/**
+	 * mArena: the arena played instead of the level while arena mode is on,
+	 * or null, guarded by the engine lock. Its snake mArenaPlayer is steered
+	 * by the player and the other ARENA_BOTS snakes by the arena. The arena
+	 * ends when the player's snake dies; bots come back whenever they die.
+	 */
+	private static final int ARENA_BOTS = 8;
+	private static final int ARENA_APPLES = 6;
+	private static final int ARENA_LENGTH = 4;
+	private Arena mArena;
+	private int mArenaPlayer;
 
 	/**
-	 * Everyone needs a little randomness in their life
+	 * mRecorder: records each game from its start, guarded by the engine
+	 * lock. mLastReplay: the last game that was played to its end.
 	 */
-	private static final Random RNG = new Random();
+	private final ReplayRecorder mRecorder = new ReplayRecorder();
+	private volatile Replay mLastReplay;
 
 	/**
-	 * Create a simple handler that we can use to cause animation to happen. We
-	 * set ourselves as a target and we can use the sleep() function to cause an
-	 * update/invalidate to occur at a later date.
+	 * mPilot: steers the snake while mAutopilot is set; it is only used on
+	 * the game loop thread
 	 */
+	private final Autopilot mPilot = new Autopilot();
+	private volatile boolean mAutopilot;
 
-	private RefreshHandler mRedrawHandler = new RefreshHandler();
+	/**
+	 * mInputs: the player's turns, offered on the UI thread and applied one
+	 * per tick on the game loop thread
+	 */
+	private final InputQueue mInputs = new InputQueue();
+
+	/**
+	 * mShownScore: the score the labels show, read on the game loop thread
+	 * to see when they need updating
+	 */
+	private volatile long mShownScore;
+	private volatile boolean mLabelsChanged;
+
+	/**
+	 * The game over screen stays up at least this long, so a tap meant for
+	 * the game does not dismiss it.
+	 */
+	private static final long GAME_OVER_MILLIS = 3000;
+	private long mGameOverTime;
 
 	private TextView mHighScoreView;
 
-	class RefreshHandler extends Handler {
+	/**
+	 * mScores: the high score, read from memory, and the leaderboard finished
+	 * games are saved to in the background
+	 */
+	private ScoreStore mScores;
+
+	private final Runnable mShowHighScore = new Runnable() {
+
+		@Override
+		public void run() {
+			mHighScoreView.setText(String.valueOf(mScores.getHighScore()));
+		}
+	};
+
+	/**
+	 * Steps the engine on the game loop thread and redraws the tiles the move
+	 * changed. When a tick ends the game, the loop stops and the new mode is
+	 * shown on the UI thread.
+	 */
+	class GameTicker implements GameLoop.Callback {
+
+		@Override
+		public long onTick(long lateNanos) {
+			long start = System.nanoTime();
+			mFrameStats.recordLateness(lateNanos);
+			try {
+				synchronized (mEngine) {
+					// the player's turns take precedence over the autopilot
+					int input = mInputs.poll();
+					if (input != GameEngine.INPUT_NONE) {
+						mFrameStats.recordInputLatency(System.nanoTime()
+								- mInputs.getPolledTime());
+					} else if (mAutopilot && mArena == null) {
+						input = mPilot.nextInput(mEngine);
+					}
+					if (mArena != null)
+						return tickArena(input);
+
+					prepareStep();
+					mRecorder.turn(input);
+					int outcome = mEngine.step(input);
+					if (outcome != RUNNING) {
+						mLastReplay = mRecorder.end(outcome);
+						mOutcome = outcome;
+						return -1;
+					}
+					drawMove();
+					if (mEngine.getScore() != mShownScore) {
+						mLabelsChanged = true;
+					}
+					return mEngine.getMoveDelay();
+				}
+			} finally {
+				mFrameStats.recordUpdate(System.nanoTime() - start);
+			}
+		}
+
+		@Override
+		public void onFrame() {
+			invalidateTiles();
+			if (mLabelsChanged) {
+				mLabelsChanged = false;
+				post(mUpdateLabels);
+			}
+			if (mOutcome != RUNNING) {
+				post(mShowOutcome);
+			}
+		}
+	}
+
+	/**
+	 * Moves the arena's snakes by one cell. Called with the engine lock held.
+	 *
+	 * @return milliseconds until the next tick, or -1 once the player's snake
+	 *         died, which ends the arena
+	 */
+	private long tickArena(int input) {
+		mArena.setInput(mArenaPlayer, input);
+		mArena.tick();
+		if (!mArena.isAlive(mArenaPlayer)) {
+			mEngine.setMode(READY);
+			mOutcome = READY;
+			return -1;
+		}
+		drawArena();
+		if (mArena.getScore(mArenaPlayer) != mShownScore) {
+			mLabelsChanged = true;
+		}
+		return mEngine.getMoveDelay();
+	}
+
+	private final Runnable mShowOutcome = new Runnable() {
 
 		@Override
-		public void handleMessage(Message msg) {
-			SnakeView.this.update();
-			SnakeView.this.invalidate();
+		public void run() {
+			int outcome;
+			synchronized (mEngine) {
+				outcome = mOutcome;
+				mOutcome = RUNNING;
+				// shown already, or the game has been restored or reset since
+				if (outcome == RUNNING
+						|| mEngine.getMode() != (outcome == WIN ? READY
+								: outcome))
+					return;
+
+				drawBoard();
+			}
+			invalidateTiles();
+			showMode(RUNNING, outcome);
 		}
+	};
+
+	private final Runnable mUpdateLabels = new Runnable() {
 
-		public void sleep(long delayMillis) {
-			this.removeMessages(0);
-			sendMessageDelayed(obtainMessage(0), delayMillis);
+		@Override
+		public void run() {
+			updateLabels();
 		}
 	};
 
 	/**
 	 * Constructs a SnakeView based on inflation from XML
-	 * 
+	 *
 	 * @param context
 	 * @param attrs
 	 */
@@ -148,218 +288,198 @@ public class SnakeView extends TileView {
 
 		Resources r = this.getContext().getResources();
 
-		resetTiles(4);
 		loadTile(RED_STAR, r.getDrawable(R.drawable.redstar));
 		loadTile(YELLOW_STAR, r.getDrawable(R.drawable.yellowstar));
 		loadTile(GREEN_STAR, r.getDrawable(R.drawable.greenstar));
+		// the arena's bots are faded red stars
+		Drawable bot = r.getDrawable(R.drawable.redstar).mutate();
+		bot.setAlpha(96);
+		loadTile(BOT_STAR, bot);
+		setHudFields("Liv: ", "Lev: ", "Sc: ");
+
+		mEngine = new GameEngine(loadLevels(context), mXTileCount,
+				mYTileCount);
+		openScores();
+	}
+
+	private void openScores() {
+		mScores = new ScoreStore(getContext(), new Runnable() {
+
+			@Override
+			public void run() {
+				// the label shows 0 until the stored score is known
+				post(mShowHighScore);
+			}
+		});
+	}
 
+	private static LevelPack loadLevels(Context context) {
+		try {
+			InputStream in = context.getAssets().open(LEVEL_PACK);
+			try {
+				return LevelPack.read(in);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("cannot load " + LEVEL_PACK, e);
+		}
 	}
 
 	private void initNewGame() {
-		mSnakeTrail.clear();
-		mAList.clear();
-
-		// For now we're just going to load up a short default eastbound snake
-		// that's just turned north
-		int midway = (mYTileCount / 2);
-
-		mSnakeTrail.add(new Coordinate(5, midway));
-		mSnakeTrail.add(new Coordinate(4, midway));
-		mSnakeTrail.add(new Coordinate(3, midway));
-		mSnakeTrail.add(new Coordinate(2, midway));
-		mSnakeTrail.add(new Coordinate(1, midway));
-		mSnakeTrail.add(new Coordinate(0, midway));
-		mNextDirection = EAST;
-		mMoveDelay = 600;
-		if (mCurrentLevel == 1)
-			mMoveDelay = 500;
-		if (mCurrentLevel == 2)
-			mMoveDelay = 400;
-
-		mwall = new Walls(mXTileCount, mYTileCount);
+		mEngine.newGame();
+	}
 
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+		// closed when the view was last detached
+		if (mScores.isClosed()) {
+			openScores();
+		}
 	}
 
-	/**
-	 * Given a ArrayList of coordinates, we need to flatten them into an array
-	 * of ints before we can stuff them into a map for flattening and storage.
-	 * 
-	 * @param cvec
-	 *            : a ArrayList of Coordinate objects
-	 * @return : a simple array containing the x/y values of the coordinates as
-	 *         [x1,y1,x2,y2,x3,y3...]
-	 */
-	private int[] coordArrayListToArray(ArrayList<Coordinate> cvec) {
-		int[] rawArray = new int[cvec.size() * 2];
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		mLoop.stop();
+		mScores.close();
+	}
 
-		int i = 0;
-		for (Coordinate c : cvec) {
-			rawArray[i++] = c.x;
-			rawArray[i++] = c.y;
+	@Override
+	protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+		// the grids are resized, which the loop must not be changing tiles in
+		synchronized (mEngine) {
+			super.onSizeChanged(w, h, oldw, oldh);
+			if (mEngine.setBoardSize(mXTileCount, mYTileCount)) {
+				mRecorder.cancel();
+			}
+			// an arena is laid out for the board it was started on
+			mArena = null;
 		}
-
-		return rawArray;
+		mDrawnWalls = null;
 	}
 
 	/**
 	 * Save game state so that the user does not lose anything if the game
 	 * process is killed while we are in the background.
-	 * 
+	 *
 	 * @return a Bundle with this view's state
 	 */
 	public Bundle saveState() {
 		Bundle map = new Bundle();
 
-		map.putIntArray("mAList", coordArrayListToArray(mAList));
-		map.putInt("mDirection", Integer.valueOf(mDirection));
-		map.putInt("mNextDirection", Integer.valueOf(mNextDirection));
-		map.putLong("mMoveDelay", Long.valueOf(mMoveDelay));
-		map.putLong("mScore", Long.valueOf(mScore));
-		map.putIntArray("mSnakeTrail", coordArrayListToArray(mSnakeTrail));
+		synchronized (mEngine) {
+			map.putByteArray(SNAPSHOT_KEY, GameSnapshot.toBytes(mEngine));
+		}
 
 		return map;
 	}
 
 	/**
-	 * Given a flattened array of ordinate pairs, we reconstitute them into a
-	 * ArrayList of Coordinate objects
-	 * 
-	 * @param rawArray
-	 *            : [x1,y1,x2,y2,...]
-	 * @return a ArrayList of Coordinates
-	 */
-	private ArrayList<Coordinate> coordArrayToArrayList(int[] rawArray) {
-		ArrayList<Coordinate> coordArrayList = new ArrayList<Coordinate>();
-
-		int coordCount = rawArray.length;
-		for (int index = 0; index < coordCount; index += 2) {
-			Coordinate c = new Coordinate(rawArray[index], rawArray[index + 1]);
-			coordArrayList.add(c);
-		}
-		return coordArrayList;
-	}
-
-	/**
-	 * Restore game state if our process is being relaunched
-	 * 
+	 * Restore game state if our process is being relaunched. The snapshot
+	 * carries the board size it was taken on, so the game can be restored
+	 * before the view is laid out.
+	 *
 	 * @param icicle
 	 *            a Bundle containing the game state
 	 */
 	public void restoreState(Bundle icicle) {
 		setMode(PAUSE);
 
-		mAList = coordArrayToArrayList(icicle.getIntArray("mAppleList"));
-		mDirection = icicle.getInt("mDirection");
-		mNextDirection = icicle.getInt("mNextDirection");
-		mMoveDelay = icicle.getLong("mMoveDelay");
-		mScore = icicle.getLong("mScore");
-		mSnakeTrail = coordArrayToArrayList(icicle.getIntArray("mSnakeTrail"));
+		byte[] snapshot = icicle.getByteArray(SNAPSHOT_KEY);
+		synchronized (mEngine) {
+			// a restored game cannot be replayed from its start
+			mRecorder.cancel();
+			boolean restored = false;
+			if (snapshot != null) {
+				try {
+					GameSnapshot.restore(mEngine, snapshot);
+					restored = true;
+				} catch (IOException e) {
+					Log.w(TAG, "cannot restore the game", e);
+				}
+			}
+			if (!restored) {
+				mEngine.setMode(READY);
+			}
+		}
+		mDrawnWalls = null;
+		showMode(PAUSE, mEngine.getMode());
 	}
 
+	/**
+	 * Shows the score, lives and level in the HUD, which redraws the fields
+	 * whose number changed only.
+	 */
 	public void updateLabels() {
-
-		mscoreText.setText("Sc: " + mScore);
-		mscoreText.setVisibility(View.VISIBLE);
-
-		mliveText.setText("Liv: " + mLives);
-		mliveText.setVisibility(View.VISIBLE);
-
-		mlevelText.setText("Lev: " + mCurrentLevel);
-		mlevelText.setVisibility(View.VISIBLE);
-
+		long score;
+		long lives;
+		int level;
+		synchronized (mEngine) {
+			score = mArena != null ? mArena.getScore(mArenaPlayer) : mEngine
+					.getScore();
+			lives = mEngine.getLives();
+			level = mEngine.getLevel();
+		}
+		mShownScore = score;
+		setHudValue(HUD_SCORE, score);
+		setHudValue(HUD_LIVES, lives);
+		setHudValue(HUD_LEVEL, level);
 	}
 
+	/**
+	 * Handles snake movement triggers from Snake Activity and moves the snake
+	 * accordingly: UP starts or resumes the game, LEFT turns the snake left
+	 * and any other direction turns it right. Turns are queued and applied
+	 * one per tick, so quick taps are not lost.
+	 *
+	 * @param direction
+	 *            The desired direction of movement
+	 */
 	public void moveSnake(int direction) {
 
 		if (direction == Snake.MOVE_UP) {
 
-			if (mMode == READY | mMode == LOSE) {
-				/*
-				 * At the beginning of the game, or the end of a previous one,
-				 * we should start a new game if UP key is clicked.
-				 */
-				initNewGame();
+			int mode;
+			synchronized (mEngine) {
+				// the game the last tick ended has not been shown to be over
+				if (mOutcome != RUNNING)
+					return;
+
+				mode = mEngine.getMode();
+				if (mode == READY | mode == LOSE) {
+					/*
+					 * At the beginning of the game, or the end of a previous
+					 * one, we should start a new game if UP key is clicked.
+					 */
+					mArena = null;
+					initNewGame();
+					mRecorder.begin(mEngine);
+				}
+			}
+			if (mode == READY | mode == LOSE) {
 				setMode(RUNNING);
-				update();
 				return;
 			}
 
-			if (mMode == PAUSE) {
+			if (mode == PAUSE) {
 				/*
 				 * If the game is merely paused, we should just continue where
 				 * we left off.
 				 */
 				setMode(RUNNING);
-				update();
 				return;
 			}
 
 			return;
 		}
 
-		
-		if (direction == Snake.MOVE_LEFT) {
-
-			Log.i("snakemoved1 left button pressed",
-					"snakemoved1 left button pressed");
-			if (mDirection == NORTH) {
-				moveSnake1(WEST);
-				return;
-			} else if (mDirection == WEST) {
-				moveSnake1(SOUTH);
-				return;
-			} else if (mDirection == SOUTH) {
-				moveSnake1(EAST);
-				return;
-			} else {
-				moveSnake1(NORTH);
-				return;
-			}
-		} else {
-
-			Log.i("snakemoved1 right button pressed",
-					"snakemoved1 right button pressed");
-			if (mDirection == NORTH) {
-				moveSnake1(EAST);
-				return;
-			} else if (mDirection == EAST) {
-				moveSnake1(SOUTH);
-				return;
-			} else if (mDirection == SOUTH) {
-				moveSnake1(WEST);
-				return;
-			} else {
-				moveSnake1(NORTH);
-				return;
-			}
-
-		}
-
-	}
-
-	/**
-	 * Handles snake movement triggers from Snake Activity and moves the snake
-	 * accordingly. Ignore events that would cause the snake to immediately turn
-	 * back on itself.
-	 * 
-	 * @param direction
-	 *            The desired direction of movement
-	 */
-	private void moveSnake1(int direction) {
-
-		if (direction == NORTH) {
-			mNextDirection = NORTH;
-			return;
-		} else if (direction == SOUTH) {
-			mNextDirection = SOUTH;
-			return;
-		} else if (direction == WEST) {
-			mNextDirection = WEST;
-			return;
-		} else {
-			mNextDirection = EAST;
-			return;
-		}
+		int input = direction == Snake.MOVE_LEFT ? GameEngine.INPUT_LEFT
+				: GameEngine.INPUT_RIGHT;
+		boolean queued = mInputs.offer(input, System.nanoTime());
+		if (Trace.ENABLED)
+			Trace.event(Trace.DEBUG, Trace.TURN, input, queued ? 1 : 0);
 
 	}
 
@@ -367,42 +487,103 @@ public class SnakeView extends TileView {
 	 * Sets the Dependent views that will be used to give information (such as
 	 * "Game Over" to the user and also to handle touch events for making
 	 * movements
-	 * 
+	 *
 	 * @param newView
 	 */
-	public void setDependentViews(TextView scoreView, TextView liveView,
-			TextView levelView, TextView msgView, View arrowView,
-			View backgroundView, TextView highScoreView) {
-		mscoreText = scoreView;
-		mliveText = liveView;
-		mlevelText = levelView;
+	public void setDependentViews(TextView msgView, View arrowView,
+			View backgroundView, TextView highScoreView, View arenaView) {
 		mStatusText = msgView;
 		mArrowsView = arrowView;
 		mBackgroundView = backgroundView;
 		mHighScoreView = highScoreView;
+		mArenaView = arenaView;
+	}
+
+	/**
+	 * Starts an arena on the current level's board, from the start screen.
+	 * The player steers one snake as in the game and ARENA_BOTS more snakes
+	 * are steered by the arena. Apples make a snake longer and count for the
+	 * score; the arena is over once the player's snake runs into a wall or
+	 * any snake.
+	 */
+	public void startArena() {
+		synchronized (mEngine) {
+			if (mOutcome != RUNNING || mEngine.getMode() != READY)
+				return;
+
+			// the level's board, without its snake
+			initNewGame();
+			mRecorder.cancel();
+			Arena arena = new Arena(mEngine.getWalls(), ARENA_APPLES,
+					mEngine.getSeed());
+			arena.setRespawn(true);
+			mArenaPlayer = arena.addSnake(false, ARENA_LENGTH);
+			if (mArenaPlayer < 0)
+				return;
+
+			for (int i = 0; i < ARENA_BOTS; i++) {
+				arena.addSnake(true, ARENA_LENGTH);
+			}
+			mArena = arena;
+		}
+		setMode(RUNNING);
 	}
 
+
 	/**
 	 * Updates the current mode of the application (RUNNING or PAUSED or the
 	 * like) as well as sets the visibility of textview for notification
-	 * 
+	 *
 	 * @param newMode
 	 */
 	public void setMode(int newMode) {
-		int oldMode = mMode;
-		mMode = newMode;
+		if (newMode != RUNNING) {
+			// outside the engine lock, the tick in progress needs it
+			mLoop.stop();
+		}
+
+		int oldMode;
+		synchronized (mEngine) {
+			oldMode = mEngine.getMode();
+			mEngine.setMode(newMode);
+		}
+		showMode(oldMode, newMode);
+	}
+
+	/**
+	 * Shows the views belonging to a mode the engine has just switched to.
+	 *
+	 * @param oldMode
+	 *            the mode the game was in before
+	 * @param newMode
+	 *            the mode the game switched to; WIN for a cleared level even
+	 *            though the engine is READY for the next one by now
+	 */
+	private void showMode(int oldMode, int newMode) {
+		if (Trace.ENABLED)
+			Trace.event(Trace.INFO, Trace.MODE, oldMode, newMode);
 
 		if (newMode == RUNNING && oldMode != RUNNING) {
 			// hide the game instructions
 			mStatusText.setVisibility(View.INVISIBLE);
 			mBackgroundView.setVisibility(View.INVISIBLE);
-			update();
+			mArenaView.setVisibility(View.GONE);
+			drawBoard();
+			invalidateTiles();
+			// turns tapped while the game was stopped are not meant for it
+			mInputs.clear();
+			mLoop.start();
 			// make the background and arrows visible as soon the snake starts
 			// moving
 			mArrowsView.setVisibility(View.VISIBLE);
+			updateLabels();
+			setHudVisible(true);
 			return;
 		}
 
+		// the HUD shows with the arrows, while the snake is moving
+		setHudVisible(false);
+
 		Resources res = getContext().getResources();
 		CharSequence str = "";
 		if (newMode == PAUSE) {
@@ -414,19 +595,25 @@ public class SnakeView extends TileView {
 			mArrowsView.setVisibility(View.GONE);
 			str = res.getText(R.string.mode_ready);
 			// TextView highScore = (TextView) findViewById(R.id.HigestScore);
-
+			if (oldMode == RUNNING && mArena != null) {
+				// the arena is over: its score until the next game starts
+				str = res.getString(R.string.mode_lose,
+						mArena.getScore(mArenaPlayer));
+				mBackgroundView.setVisibility(View.VISIBLE);
+				mBackgroundView.bringToFront();
+				mStatusText.bringToFront();
+			}
+			mArenaView.setVisibility(View.VISIBLE);
+			mArenaView.bringToFront();
+		} else {
+			mArenaView.setVisibility(View.GONE);
 		}
 		// TODO modify WIN - show same level if lives exist
 		if (newMode == LOSE) {
 			mArrowsView.setVisibility(View.GONE);
-			Log.i("current mscore when lose ", " mscore LOSE " + mScore);
-			mSnakeTrail.clear();
-			str = res.getString(R.string.mode_winsame, mLives);
-			if (mCurrentLevel < 0) {
-
-				newMode = GAMEOVER;
-				mMode = GAMEOVER;
-			}
+			if (Trace.ENABLED)
+				Trace.event(Trace.INFO, Trace.SCORE, mEngine.getScore(), LOSE);
+			str = res.getString(R.string.mode_winsame, mEngine.getLives());
 			mBackgroundView.setVisibility(View.VISIBLE);
 			mBackgroundView.bringToFront();
 			mStatusText.bringToFront();
@@ -435,40 +622,35 @@ public class SnakeView extends TileView {
 
 		if (newMode == WIN) {
 			mArrowsView.setVisibility(View.GONE);
-			str = res.getString(R.string.mode_win, mLives);
-			mCurrentLevel++;
+			str = res.getString(R.string.mode_win, mEngine.getLives());
 			mBackgroundView.setVisibility(View.VISIBLE);
 			mBackgroundView.bringToFront();
 			mStatusText.bringToFront();
-			mMode = READY;
 		}
 
 		if (newMode == GAMEOVER) {
-			Log.i("current mscore when GAMEOVER ", "mscore GAMEOVER " + mScore);
-			mCurrentLevel = 0;
-			mLives = 3;
-			setHighestScore(mScore);
-			mScore = 0;
-			str = res.getString(R.string.mode_lose, mScore);
+			long finalScore = mEngine.getFinalScore();
+			if (Trace.ENABLED)
+				Trace.event(Trace.INFO, Trace.SCORE, finalScore, GAMEOVER);
+			// only the game that just ended, not a game over screen restored
+			// from a snapshot, which was recorded when it was first shown
+			if (oldMode == RUNNING) {
+				mScores.addResult(mEngine.getFinalLevel(), finalScore);
+			}
+			mGameOverTime = SystemClock.uptimeMillis();
+			str = res.getString(R.string.mode_lose, finalScore);
 			mArrowsView.setVisibility(View.GONE);
 			mBackgroundView.setVisibility(View.VISIBLE);
-			Log.i("current mscore when GAMEOVER ",
-					"mscore GAMEOVER " + "Highest Score:"
-							+ Integer.valueOf(getHighestScoreFromDB()));
-			mHighScoreView.setText("Highest Score:"
-					+ Integer.valueOf(getHighestScoreFromDB()));
-			// mMode = READY;
+			if (Trace.ENABLED)
+				Trace.event(Trace.INFO, Trace.HIGH_SCORE,
+						mScores.getHighScore(), 0);
+			mHighScoreView.setText("Highest Score:" + mScores.getHighScore());
 			mStatusText.setText(str);
 			mStatusText.setVisibility(View.VISIBLE);
 			mBackgroundView.setVisibility(View.VISIBLE);
 			mBackgroundView.bringToFront();
 			mStatusText.bringToFront();
 			mHighScoreView.bringToFront();
-			mSnakeTrail.clear();
-			// try { Thread.sleep(3000); Log.i("mscore Sleeping done",
-			// "mscore Sleeping done");}
-			// catch (InterruptedException ex) {
-			// Log.i("","YourApplicationName.toString()"); }
 			return;
 
 		}
@@ -476,369 +658,174 @@ public class SnakeView extends TileView {
 		mStatusText.setText(str);
 		mStatusText.setVisibility(View.VISIBLE);
 
-		mscoreText.setText("Sc: " + mScore);
-		mscoreText.setVisibility(View.VISIBLE);
-
-		mliveText.setText("Liv: " + mLives);
-		mliveText.setVisibility(View.VISIBLE);
-		setHighestScore(mScore);
-		mlevelText.setText("Lev: " + mCurrentLevel);
-		mlevelText.setVisibility(View.VISIBLE);
-		mHighScoreView.setText(String.valueOf(getHighestScoreFromDB()));
-	}
-
-	private int getHighestScoreFromDB() {
-		initDB();
-		MyDb snake = new MyDb(getContext());
-		SQLiteDatabase db = snake.getReadableDatabase();
-		Cursor cursor = db.rawQuery(
-				"select * from hw4 where name = 'player 1'", null);
-		cursor.moveToFirst();
-		int count = cursor.getColumnCount();
-		int scoreInDb = 0;
-		if (count > 0) {
-			scoreInDb = cursor.getInt(cursor.getColumnIndex("HIGH_SCORE"));
-		}
-
-		cursor.close();
-		db.close();
-		return scoreInDb;
-	}
-
-	private void initDB() {
-		MyDb snake = new MyDb(getContext());
-		SQLiteDatabase db = snake.getWritableDatabase();
-		// create table at first time
-		String sql = "create table if not exists hw4 (name varchar(50), speed integer, HIGH_SCORE integer, score intger)";
-		db.execSQL(sql);
-
-		// db.execSQL("delete from hw4 where name = 'player 1'");
-		Cursor rawQuery = db.rawQuery(
-				"select * from hw4 where name = 'player 1'", null);
-
-		if (rawQuery.getCount() == 0) {
-			db.execSQL("insert into hw4 (name, HIGH_SCORE) values('player 1', 0)");
-		}
-		rawQuery.close();
-		db.close();
+		updateLabels();
+		// the game in progress counts once it is over
+		mHighScoreView.setText(String.valueOf(Math.max(
+				mScores.getHighScore(), mEngine.getScore())));
 	}
 
-	private void setHighestScore(long score) {
-		initDB();
-		int scoreInDb = getHighestScoreFromDB();
-
-		Log.i("Existing DB Score is :", " " + scoreInDb);
-		if (scoreInDb < score) {
-
-			Log.i("Current score is the highest score :", " " + score);
-			MyDb snake = new MyDb(getContext());
-			SQLiteDatabase db = snake.getWritableDatabase();
-
-			db.execSQL("update hw4 set HIGH_SCORE =" + mScore
-					+ " where name = 'player 1'");
-			db.close();
-		}
-
+	public boolean isAutopilot() {
+		return mAutopilot;
 	}
 
 	/**
-	 * @return the Game state as Running, Ready, Paused, Lose
+	 * Lets the Autopilot steer the snake towards the apples and the exit, or
+	 * hands control back to the player.
 	 */
-	public int getGameState() {
-		return mMode;
+	public void setAutopilot(boolean autopilot) {
+		mAutopilot = autopilot;
 	}
 
 	/**
-	 * Selects a random location within the garden that is not currently covered
-	 * by the snake. Currently _could_ go into an infinite loop if the snake
-	 * currently fills the garden, but we'll leave discovery of this prize to a
-	 * truly excellent snake-player.
-	 */
-	private void addRandomApple() {
-		Coordinate newCoord = null;
-		boolean found = false;
-		while (!found) {
-			// Choose a new location
-			int newX = 1 + RNG.nextInt(mXTileCount - 2);
-			int newY = 1 + RNG.nextInt(mYTileCount - 2);
-			newCoord = new Coordinate(newX, newY);
-
-			// Make sure it's not already under the snake
-			boolean collision = false;
-			int snakelength = mSnakeTrail.size();
-			for (int index = 0; index < snakelength; index++) {
-				if (mSnakeTrail.get(index).equals(newCoord)) {
-					collision = true;
-				}
-			}
-			// if we're here and there's been no collision
-			found = !collision;
-		}
-		if (newCoord == null) {
-			Log.e(TAG, "Somehow ended up with a null newCoord!");
-		}
-		mAList.add(newCoord);
-	}
-
-	/**
-	 * Handles the basic update loop, checking to see if we are in the running
-	 * state, determining if a move should be made, updating the snake's
-	 * location.
+	 * @return the last game played to its end, to be played again with a
+	 *         Replayer, or null
 	 */
-	public void update() {
-		if (mMode == RUNNING) {
-			long now = System.currentTimeMillis();
-
-			if (now - mLastMove > mMoveDelay) {
-				clearTiles();
-				if(mwall != null)
-					mwall.reset();
-				updateWalls();
-				updateSnake();
-				updatesnak();
-				mLastMove = now;
-			}
-			mRedrawHandler.sleep(mMoveDelay);
-		}
-
+	public Replay getLastReplay() {
+		return mLastReplay;
 	}
 
 	/**
-	 * Draws some walls.
+	 * @return true once the game over screen has been shown and up long
+	 *         enough to be dismissed
 	 */
-	private void updateWalls() {
-
-		// Draw horizontal walls in the border
-		for (int x = 0; x < mXTileCount; x++) {
-			setTile(GREEN_STAR, x, 0);
-			setTile(GREEN_STAR, x, mYTileCount - 1);
-			mwall.addWall(x, 0);
-			mwall.addWall(x, mYTileCount - 1);
-		}
-
-		// Cut out holes in vertical walls
-		int ytilecountmin = mYTileCount / 2 ;
-
-		// Draw vertical walls in the border
-		for (int y = 1; y < mYTileCount - 1; y++) {
-			
-			if(y != ytilecountmin) {
-			setTile(GREEN_STAR, 0, y);
-			setTile(GREEN_STAR, mXTileCount - 1, y);
-			mwall.addWall(0, y);
-			mwall.addWall(mXTileCount - 1, y);
-			}
-		}
-
-		if (mCurrentLevel == 2)
-			drawWallsLevel3();
-		else if (mCurrentLevel == 1)
-			drawWallsLevel2();
-		else
-			drawWallsLevel1();
-	}
-
-	private void drawWallsLevel1() {
-		// Draw vertical line down the middle
-		for (int j = 5; j < mYTileCount - 4; j++) {
-			setTile(GREEN_STAR, mXTileCount / 2, j);
-			mwall.addWall(mXTileCount / 2, j);
-		}
-	}
-
-	private void drawWallsLevel2() {
-		drawWallsLevel1();
-		for (int i = mXTileCount / 2; i < mXTileCount / 2 + 6; i++) {
-			setTile(GREEN_STAR, i, mYTileCount / 2);
-			mwall.addWall(i, mYTileCount / 2);
-		}
-	}
-
-	private void drawWallsLevel3() {
-		drawWallsLevel2();
-		for (int i = mXTileCount / 2 - 6; i < mXTileCount / 2; i++) {
-			setTile(GREEN_STAR, i, 5);
-			mwall.addWall(i, 5);
-			setTile(GREEN_STAR, i, mYTileCount - 5);
-			mwall.addWall(i, mYTileCount - 5);
+	public boolean canDismissGameOver() {
+		synchronized (mEngine) {
+			return mOutcome == RUNNING
+					&& SystemClock.uptimeMillis() - mGameOverTime
+						>= GAME_OVER_MILLIS;
 		}
 	}
 
 	/**
-	 * Draws some snake.
+	 * @return the Game state as Running, Ready, Paused, Lose
 	 */
-	private void updatesnak() {
-		for (Coordinate c : mAList) {
-			setTile(YELLOW_STAR, c.x, c.y);
-		}
+	public int getGameState() {
+		return mEngine.getMode();
 	}
 
 	/**
-	 * Figure out which way the snake is going, see if he's run into anything
-	 * (the walls or himself). If he's not going to die, we then add
-	 * to the front and subtract from the rear in order to simulate motion. If
-	 * we want to grow him, we don't subtract from the rear.
+	 * Redraws the whole board: the walls, which the static layer takes from
+	 * the level's Walls for the tiles in view, the apples and the snake, and
+	 * points the camera at the snake's head.
 	 */
-	private void updateSnake() {
-		boolean growSnake = false;
-
-		// Grab the snake by the head
-		Coordinate head = mSnakeTrail.get(0);
-		Coordinate newHead = new Coordinate(1, 1);
-
-		mDirection = mNextDirection;
-
-		switch (mDirection) {
-		case EAST: {
-			newHead = new Coordinate(head.x + 1, head.y);
-			break;
-		}
-		case WEST: {
-			newHead = new Coordinate(head.x - 1, head.y);
-			break;
-		}
-		case NORTH: {
-			newHead = new Coordinate(head.x, head.y - 1);
-			break;
-		}
-		case SOUTH: {
-			newHead = new Coordinate(head.x, head.y + 1);
-			break;
-		}
-		}
-
-		// Look for win hole
-		if (newHead.x == mXTileCount ) {
-			if (newHead.y == (mYTileCount / 2) ){
+	private void drawBoard() {
+		clearTiles();
 
-				mScore++;
-
-				Log.i("snakemoved win!", "snakemoved win!");
-
-				if (mLives == 0 || mCurrentLevel == 3) {
-					setMode(GAMEOVER);
-				} else
-					setMode(WIN);
-				return;
-			}
+		Walls walls = mEngine.getWalls();
+		if (walls != mDrawnWalls) {
+			mDrawnWalls = walls;
+			invalidateStaticTiles();
 		}
 
-		// Collision detection
-		// For now we have a 1-square wall around the entire arena
-		// if ((newHead.x < 1) || (newHead.y < 1) || (newHead.x > mXTileCount -
-		// 2)
-		// || (newHead.y > mYTileCount - 2)) {
-		// mLives--;
-		// setMode(LOSE);
-		// return;
-		//
-		// }
-		//
-		checkWallsLevel1(newHead);
-		growSnake = true;
-		
-		// Look for collisions with itself
-		int snakelength = mSnakeTrail.size();
-		for (int snakeindex = 0; snakeindex < snakelength; snakeindex++) {
-			Coordinate c = mSnakeTrail.get(snakeindex);
-			if (c.equals(newHead)) {
-				mLives--;
-				if (mLives == 0 || mCurrentLevel == 3) {
-					setMode(GAMEOVER);
-				} else
-					setMode(LOSE);
-				return;
-			}
+		if (mArena != null) {
+			drawArena();
+			return;
 		}
 
-		// Look for restofSnake
-		int acount = mAList.size();
+		int acount = mEngine.getAppleCount();
 		for (int aindex = 0; aindex < acount; aindex++) {
-			Coordinate c = mAList.get(aindex);
-			if (c.equals(newHead)) {
-				mAList.remove(c);
-				addRandomApple();
-
-				mScore++;
-
-				mMoveDelay *= 0.9;
-
-				growSnake = true;
-			}
+			setTile(YELLOW_STAR, mEngine.getAppleX(aindex),
+					mEngine.getAppleY(aindex));
 		}
 
-		// push a new head onto the ArrayList and pull off the tail
-		mSnakeTrail.add(0, newHead);
-		// except if we want the snake to grow
-		if (!growSnake) {
-			mSnakeTrail.remove(mSnakeTrail.size() - 1);
+		// Draws the snake, head in yellow and the rest of the body in red.
+		int snakelength = mEngine.getSnakeLength();
+		if (snakelength > 0) {
+			followCamera(mEngine.getSnakeX(0), mEngine.getSnakeY(0));
 		}
-
-		int index = 0;
-		for (Coordinate c : mSnakeTrail) {
-			if (index == 0) {
-				setTile(YELLOW_STAR, c.x, c.y);
-			} else {
-				setTile(RED_STAR, c.x, c.y);
-			}
-			index++;
+		for (int index = 0; index < snakelength; index++) {
+			setTile(index == 0 ? YELLOW_STAR : RED_STAR,
+					mEngine.getSnakeX(index), mEngine.getSnakeY(index));
 		}
 	}
 
-	private void checkWallsLevel1(Coordinate newHead) {
-		// Look for wall in the middle of the screen
-		if (mwall.getWall(newHead.x, newHead.y)) {
-			if (newHead.x < mwall.getXMax() && newHead.y < mwall.getYMax()) {
-				mLives--;
-			}
-			if (mLives == 0 || mCurrentLevel == 3) {
-				setMode(GAMEOVER);
-			} else
-				setMode(LOSE);
+	/**
+	 * Makes room for what the next step may change before it is taken, so
+	 * neither the step nor drawing it allocates: the engine's and the
+	 * recorder's share, and the tiles around the snake's head and under the
+	 * apple that may replace one eaten. Called with the engine lock held.
+	 */
+	private void prepareStep() {
+		mEngine.prepareStep();
+		mRecorder.prepareTurn();
+		if (mEngine.getSnakeLength() == 0)
 			return;
-		}
 
+		int x = mEngine.getSnakeX(0);
+		int y = mEngine.getSnakeY(0);
+		reserveTile(x - 1, y);
+		reserveTile(x + 1, y);
+		reserveTile(x, y - 1);
+		reserveTile(x, y + 1);
+		if (mEngine.getNextAppleX() >= 0) {
+			reserveTile(mEngine.getNextAppleX(), mEngine.getNextAppleY());
+		}
 	}
 
-	private void checkWallsLevel2(Coordinate newHead) {
-		// Look for wall in the middle of the screen
-		if (newHead.x == mXTileCount / 2) {
-			if ((newHead.y < (mYTileCount - 4)) && (newHead.y >= 5)) {
-				mLives--;
-				if (mLives == 0 || mCurrentLevel == 3) {
-					setMode(GAMEOVER);
-				}
-				setMode(LOSE);
-				return;
-			}
-		}
+	@Override
+	protected int getStaticTile(int x, int y) {
+		Walls walls = mDrawnWalls;
+		return walls != null && walls.getWall(x, y) ? GREEN_STAR : 0;
 	}
 
 	/**
-	 * Simple class containing two integer values and a comparison function.
-	 * There's probably something I should use instead, but this was quick and
-	 * easy to build.
+	 * Redraws the tiles the last step changed: the new head, the old head that
+	 * is now part of the body, the tail pulled off and a newly placed apple.
+	 * The camera follows the head on a board larger than the view.
 	 */
-	private class Coordinate {
-		public int x;
-		public int y;
+	private void drawMove() {
+		int xTileCount = mEngine.getXTileCount();
 
-		public Coordinate(int newX, int newY) {
-			x = newX;
-			y = newY;
+		int tail = mEngine.getLastTail();
+		if (tail >= 0) {
+			setTile(0, tail % xTileCount, tail / xTileCount);
+		}
+		if (mEngine.getSnakeLength() > 1) {
+			setTile(RED_STAR, mEngine.getSnakeX(1), mEngine.getSnakeY(1));
 		}
+		setTile(YELLOW_STAR, mEngine.getSnakeX(0), mEngine.getSnakeY(0));
+		followCamera(mEngine.getSnakeX(0), mEngine.getSnakeY(0));
 
-		public boolean equals(Coordinate other) {
-			if (x == other.x && y == other.y) {
-				return true;
-			}
-			return false;
+		int apple = mEngine.getLastApple();
+		if (apple >= 0) {
+			setTile(YELLOW_STAR, apple % xTileCount, apple / xTileCount);
 		}
+	}
 
-		@Override
-		public String toString() {
-			return "Coordinate: [" + x + "," + y + "]";
+	/**
+	 * Brings the tiles in view up to date with the arena: apples, the
+	 * player's snake with its head in yellow and the bots. Every cell in view
+	 * is compared, but only the tiles that changed are redrawn. The camera
+	 * follows the player first, so cells coming into view are brought up to
+	 * date as they do.
+	 */
+	private void drawArena() {
+		int xTileCount = mArena.getXTileCount();
+		int player = mArenaPlayer + 1;
+		int head = -1;
+		if (mArena.isAlive(mArenaPlayer)) {
+			head = mArena.getHead(mArenaPlayer);
+			followCamera(head % xTileCount, head / xTileCount);
+		}
+		int cameraX = getCameraX();
+		int cameraY = getCameraY();
+		int lastX = Math.min(xTileCount, cameraX + getXViewTiles());
+		int lastY = Math.min(mArena.getYTileCount(), cameraY
+				+ getYViewTiles());
+		for (int y = cameraY; y < lastY; y++) {
+			for (int x = cameraX; x < lastX; x++) {
+				int owner = mArena.getOwner(x, y);
+				int tile = 0;
+				if (owner == Arena.APPLE) {
+					tile = YELLOW_STAR;
+				} else if (owner == player) {
+					tile = y * xTileCount + x == head ? YELLOW_STAR : RED_STAR;
+				} else if (owner > 0) {
+					tile = BOT_STAR;
+				}
+				setTile(tile, x, y);
+			}
 		}
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,213 @@
+package cs175.hw4.snakes;
+
+/**
+ * TileGrid: the tiles of a world larger than the view, the camera looking
+ * at part of it, and the tiles changed since they were last drawn. It is the
+ * part of TileView that does not need Android: which tiles a frame draws and
+ * where, handed to a Painter, while TileView does the drawing. The tiles are
+ * kept in a ChunkedGrid, so the empty parts of a large world take no memory.
+ *
+ * One thread changes tiles and moves the camera while the UI thread draws.
+ * The camera is read once per frame, so a frame is drawn from one camera
+ * position.
+ */
+public class TileGrid {
+
+	/**
+	 * Receives the tiles to draw, at their position in the view counted in
+	 * tiles from the top left corner.
+	 */
+	public interface Painter {
+		void paintTile(int tile, int x, int y);
+	}
+
+	/**
+	 * Tiles changed since the last markDrawn(), packed as y * mXTileCount +
+	 * x. When more tiles change than fit, or the grid is resized, the whole
+	 * view is redrawn instead.
+	 */
+	public static final int MAX_DIRTY_TILES = 32;
+	private final int[] mDirtyTiles = new int[MAX_DIRTY_TILES];
+	private int mDirtyCount;
+	private boolean mFullRedraw = true;
+
+	private final ChunkedGrid mTiles = new ChunkedGrid();
+	private int mXTileCount;
+	private int mYTileCount;
+	private int mXViewTiles;
+	private int mYViewTiles;
+
+	/**
+	 * mCameraX, mCameraY: the world tile shown in the top left corner
+	 */
+	private volatile int mCameraX;
+	private volatile int mCameraY;
+
+	/**
+	 * Sizes the world and the view, dropping every tile and moving the
+	 * camera back to the top left corner.
+	 */
+	public void resize(int xTileCount, int yTileCount, int xViewTiles,
+			int yViewTiles) {
+		mXTileCount = xTileCount;
+		mYTileCount = yTileCount;
+		mXViewTiles = xViewTiles;
+		mYViewTiles = yViewTiles;
+		mTiles.resize(xTileCount, yTileCount);
+		mCameraX = 0;
+		mCameraY = 0;
+		mDirtyCount = 0;
+		mFullRedraw = true;
+	}
+
+	/**
+	 * Resets all tiles to 0 (empty).
+	 */
+	public void clear() {
+		mTiles.clear();
+		mDirtyCount = 0;
+		mFullRedraw = true;
+	}
+
+	/**
+	 * @return the tile at a world position, which must lie in the world
+	 */
+	public int get(int x, int y) {
+		return mTiles.get(x, y);
+	}
+
+	/**
+	 * Makes room for a tile at the given world position, so that setting it
+	 * later does not allocate.
+	 */
+	public void reserve(int x, int y) {
+		if (x < 0 || y < 0 || x >= mXTileCount || y >= mYTileCount)
+			return;
+
+		mTiles.reserve(x, y);
+	}
+
+	/**
+	 * Sets the tile at a world position and remembers it as changed.
+	 * Positions outside the world are ignored.
+	 */
+	public void set(int tile, int x, int y) {
+		if (x < 0 || y < 0 || x >= mXTileCount || y >= mYTileCount)
+			return;
+
+		if (mTiles.get(x, y) == tile)
+			return;
+
+		mTiles.set(x, y, tile);
+		if (mDirtyCount < MAX_DIRTY_TILES) {
+			mDirtyTiles[mDirtyCount++] = y * mXTileCount + x;
+		} else {
+			mFullRedraw = true;
+		}
+	}
+
+	public int getCameraX() {
+		return mCameraX;
+	}
+
+	public int getCameraY() {
+		return mCameraY;
+	}
+
+	/**
+	 * Moves the camera so the given world tile is in the top left corner, as
+	 * far as the world reaches.
+	 */
+	public void setCamera(int x, int y) {
+		x = Math.max(0, Math.min(x, mXTileCount - mXViewTiles));
+		y = Math.max(0, Math.min(y, mYTileCount - mYViewTiles));
+		if (x == mCameraX && y == mCameraY)
+			return;
+
+		mCameraX = x;
+		mCameraY = y;
+		mFullRedraw = true;
+	}
+
+	/**
+	 * Keeps a world tile, such as the snake's head, in view: once it comes
+	 * within a quarter of the view of an edge the camera centers on it. The
+	 * camera only moves now and then, and each move redraws the view once.
+	 */
+	public void followCamera(int x, int y) {
+		int cameraX = mCameraX;
+		int cameraY = mCameraY;
+		int xMargin = mXViewTiles / 4;
+		int yMargin = mYViewTiles / 4;
+		if (x - cameraX < xMargin || cameraX + mXViewTiles - 1 - x < xMargin) {
+			cameraX = x - mXViewTiles / 2;
+		}
+		if (y - cameraY < yMargin || cameraY + mYViewTiles - 1 - y < yMargin) {
+			cameraY = y - mYViewTiles / 2;
+		}
+		setCamera(cameraX, cameraY);
+	}
+
+	/**
+	 * Has the whole view drawn at the next markDrawn(), for changes the
+	 * dirty tiles do not cover.
+	 */
+	public void requestFullRedraw() {
+		mFullRedraw = true;
+	}
+
+	/**
+	 * @return true if the whole view must be drawn rather than the dirty
+	 *         tiles
+	 */
+	public boolean isFullRedraw() {
+		return mFullRedraw;
+	}
+
+	/**
+	 * Hands the dirty tiles the camera sees to a painter, then forgets them.
+	 * A full redraw is forgotten too; the caller checks isFullRedraw() first.
+	 */
+	public void markDrawn(Painter painter) {
+		if (!mFullRedraw) {
+			int cameraX = mCameraX;
+			int cameraY = mCameraY;
+			for (int i = 0; i < mDirtyCount; i++) {
+				int cell = mDirtyTiles[i];
+				int x = cell % mXTileCount - cameraX;
+				int y = cell / mXTileCount - cameraY;
+				if (x < 0 || y < 0 || x >= mXViewTiles || y >= mYViewTiles)
+					continue;
+
+				painter.paintTile(mTiles.get(x + cameraX, y + cameraY), x, y);
+			}
+		}
+		mDirtyCount = 0;
+		mFullRedraw = false;
+	}
+
+	/**
+	 * Hands the nonempty tiles the camera sees within a range of view tiles
+	 * to a painter.
+	 *
+	 * @param firstX
+	 *            the first view column to paint, lastX the one after the
+	 *            last; likewise for the rows
+	 */
+	public void paint(int cameraX, int cameraY, int firstX, int firstY,
+			int lastX, int lastY, Painter painter) {
+		firstX = Math.max(0, firstX);
+		firstY = Math.max(0, firstY);
+		lastX = Math.min(Math.min(lastX, mXViewTiles), mXTileCount - cameraX);
+		lastY = Math.min(Math.min(lastY, mYViewTiles), mYTileCount - cameraY);
+		for (int x = firstX; x < lastX; x += 1) {
+			for (int y = firstY; y < lastY; y += 1) {
+				int tile = mTiles.get(cameraX + x, cameraY + y);
+				if (tile > 0) {
+					painter.paintTile(tile, x, y);
+				}
+			}
+		}
+	}
+
+}
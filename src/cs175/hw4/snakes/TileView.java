@@ -4,45 +4,152 @@ import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.util.AttributeSet;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
 import android.view.View;
 
 /**
  * TileView is a View designed for handling arrays of "icons" or other drawables
  * for snake game.
  * 
+ * The grid of tiles, the world, may be larger than the view. The view then
+ * shows the part of it in front of a camera, and drawing only visits the
+ * tiles the camera sees, so its cost depends on the size of the screen and
+ * not of the world.
  */
 public class TileView extends View {
 
 	/**
 	 * Parameters controlling the size of the tiles and their range within view.
 	 * Width/Height are in pixels, and Drawables will be scaled to fit to these
-	 * dimensions. X/Y Tile Counts are the number of tiles that will be drawn.
+	 * dimensions. X/Y Tile Counts are the size of the world in tiles;
+	 * mXViewTiles/mYViewTiles the number of tiles that fit on the view.
 	 */
 
-	protected static int mTileSize;
+	protected int mTileSize;
 
-	protected static int mXTileCount;
-	protected static int mYTileCount;
+	protected int mXTileCount;
+	protected int mYTileCount;
 
-	private static int mXOffset;
-	private static int mYOffset;
+	private int mXViewTiles;
+	private int mYViewTiles;
+
+	private int mXOffset;
+	private int mYOffset;
+
+	/**
+	 * mXWorldSize, mYWorldSize: the world size asked for with setWorldSize(),
+	 * 0 to fit the world to the view
+	 */
+	private int mXWorldSize;
+	private int mYWorldSize;
 
 	private final Paint mPaint = new Paint();
 
 	/**
-	 * A hash that maps integer handles specified by the subclasser to the
-	 * drawable that will be used for that reference
+	 * mTileDrawables: the drawable for each integer key the subclasser loaded,
+	 * growing as higher keys are loaded; key 0 is the empty tile.
+	 */
+	private Drawable[] mTileDrawables = new Drawable[4];
+
+	/**
+	 * mAtlas: every tile rasterized at mAtlasTileSize into one bitmap,
+	 * ATLAS_COLUMNS tiles to a row, with mTileSources[key] the area holding
+	 * a tile. It is rebuilt before the next draw when a tile is loaded or
+	 * mTileSize changes. mTileConfig: the atlas's format; RGB_565 halves its
+	 * memory when no tile needs transparency.
+	 */
+	private static final int ATLAS_COLUMNS = 8;
+	private Bitmap mAtlas;
+	private Rect[] mTileSources = new Rect[0];
+	private int mAtlasTileSize;
+	private boolean mAtlasStale = true;
+	private Bitmap.Config mTileConfig = Bitmap.Config.ARGB_8888;
+	private final Rect mTileDest = new Rect();
+
+	/**
+	 * mTileGrid: the index of the tile drawn at each location of the world,
+	 * the camera, and the tiles changed since the last invalidateTiles().
+	 * mTilePainter draws the tiles it hands out on mDrawCanvas during
+	 * onDraw(); mTileInvalidator invalidates the changed ones.
+	 */
+	private final TileGrid mTileGrid = new TileGrid();
+	private Canvas mDrawCanvas;
+
+	private final TileGrid.Painter mTilePainter = new TileGrid.Painter() {
+
+		@Override
+		public void paintTile(int tile, int x, int y) {
+			drawTile(mDrawCanvas, tile, mXOffset + x * mTileSize, mYOffset + y
+					* mTileSize);
+		}
+	};
+
+	private final TileGrid.Painter mTileInvalidator = new TileGrid.Painter() {
+
+		@Override
+		public void paintTile(int tile, int x, int y) {
+			int left = mXOffset + x * mTileSize;
+			int top = mYOffset + y * mTileSize;
+			postInvalidate(left, top, left + mTileSize, top + mTileSize);
+		}
+	};
+
+	private final Rect mClip = new Rect();
+
+	/**
+	 * mStaticGrid: tiles that stay put for a long time, such as walls.
+	 * mStaticLayer: the ones the camera sees, rasterized into an offscreen
+	 * bitmap the size of the view and blitted in one call underneath the tile
+	 * grid. The layer is rasterized again when a static tile changes or the
+	 * camera moves away from mLayerCameraX, mLayerCameraY.
+	 */
+	private final ChunkedGrid mStaticGrid = new ChunkedGrid();
+	private Bitmap mStaticLayer;
+	private Canvas mStaticCanvas;
+	private boolean mStaticLayerStale = true;
+	private int mLayerCameraX;
+	private int mLayerCameraY;
+
+	/**
+	 * mFrameStats: timing of the game loop and of onDraw(), shown in the top
+	 * left corner while mDebugOverlay is on.
 	 */
-	private Bitmap[] mTileArray;
+	protected final FrameStats mFrameStats = new FrameStats();
+	private boolean mDebugOverlay;
+	private final Paint mOverlayPaint = new Paint();
+	private final Paint mOverlayBackground = new Paint();
+	private final char[] mOverlayLine = new char[64];
+	private int mOverlayHeight;
 
 	/**
-	 * A two-dimensional array of integers in which the number represents the
-	 * index of the tile that should be drawn at that locations
+	 * The HUD: a row of labelled numbers, such as the score, drawn while
+	 * mHudVisible is on in a band across the top of the view that the tiles
+	 * are kept out of. It looks like the labels it replaced: HUD_TEXT_SP text
+	 * in text_violet, HUD_TOP_DP below the top edge, and field i starting
+	 * HUD_LEFT_DP[i] from the left. Each field keeps its text formatted in
+	 * mHudText and only formats it again when its value changes, and a change
+	 * invalidates just the band, so updating it costs no Strings and never a
+	 * layout pass.
 	 */
-	private int[][] mTileGrid;
+	private static final float HUD_TEXT_SP = 24;
+	private static final float HUD_TOP_DP = 25;
+	private static final float[] HUD_LEFT_DP = { 50, 250, 500 };
+	private static final int HUD_FIELD_CHARS = 32;
+	private String[] mHudLabels = new String[0];
+	private long[] mHudValues = new long[0];
+	private char[][] mHudText = new char[0][];
+	private int[] mHudLengths = new int[0];
+	private volatile boolean mHudVisible;
+	private final Paint mHudPaint = new Paint();
+	private final float[] mHudLeft = new float[HUD_LEFT_DP.length];
+	private float mHudBaseline;
+	private int mHudHeight;
 
 	public TileView(Context context, AttributeSet attrs) {
 		super(context, attrs);
@@ -52,6 +159,7 @@ public class TileView extends View {
 		mTileSize = a.getDimensionPixelSize(R.styleable.TileView_tileSize, 12);
 
 		a.recycle();
+		initTextPaints();
 	}
 
 	public TileView(Context context, AttributeSet attrs, int defStyle) {
@@ -62,7 +170,96 @@ public class TileView extends View {
 		mTileSize = a.getDimensionPixelSize(R.styleable.TileView_tileSize, 12);
 
 		a.recycle();
+		initTextPaints();
+	}
+
+	private void initTextPaints() {
+		mOverlayPaint.setColor(Color.YELLOW);
+		mOverlayPaint.setAntiAlias(true);
+		mOverlayPaint.setTextSize(mTileSize * 2 / 3);
+		mOverlayBackground.setColor(Color.argb(160, 0, 0, 0));
+		float lineHeight = mOverlayPaint.descent() - mOverlayPaint.ascent();
+		mOverlayHeight = (int) Math.ceil(lineHeight * FrameStats.OVERLAY_LINES);
 
+		DisplayMetrics metrics = getResources().getDisplayMetrics();
+		mHudPaint.setColor(getResources().getColor(R.color.text_violet));
+		mHudPaint.setAntiAlias(true);
+		mHudPaint.setTextSize(TypedValue.applyDimension(
+				TypedValue.COMPLEX_UNIT_SP, HUD_TEXT_SP, metrics));
+		for (int field = 0; field < HUD_LEFT_DP.length; field++) {
+			mHudLeft[field] = TypedValue.applyDimension(
+					TypedValue.COMPLEX_UNIT_DIP, HUD_LEFT_DP[field], metrics);
+		}
+		// like a TextView's padding, the offset is to the top of the text
+		mHudBaseline = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP,
+				HUD_TOP_DP, metrics) - mHudPaint.ascent();
+		mHudHeight = (int) Math.ceil(mHudBaseline + mHudPaint.descent());
+	}
+
+	/**
+	 * Sets up the HUD's fields, which all show 0 at first.
+	 *
+	 * @param labels
+	 *            the text shown before each field's number, such as "Sc: ";
+	 *            at most as many as HUD_LEFT_DP has places for
+	 */
+	public void setHudFields(String... labels) {
+		if (labels.length > HUD_LEFT_DP.length)
+			throw new IllegalArgumentException("too many HUD fields: "
+					+ labels.length);
+
+		mHudLabels = labels.clone();
+		mHudValues = new long[labels.length];
+		mHudText = new char[labels.length][HUD_FIELD_CHARS];
+		mHudLengths = new int[labels.length];
+		for (int field = 0; field < labels.length; field++) {
+			formatHudField(field);
+		}
+		invalidateHud();
+	}
+
+	/**
+	 * Shows a new number in a HUD field. Nothing happens unless it differs
+	 * from the one shown. Must be called on the UI thread.
+	 */
+	public void setHudValue(int field, long value) {
+		if (mHudValues[field] == value)
+			return;
+
+		mHudValues[field] = value;
+		formatHudField(field);
+		invalidateHud();
+	}
+
+	public boolean isHudVisible() {
+		return mHudVisible;
+	}
+
+	public void setHudVisible(boolean visible) {
+		if (visible == mHudVisible)
+			return;
+
+		mHudVisible = visible;
+		invalidateHud();
+	}
+
+	private void formatHudField(int field) {
+		char[] text = mHudText[field];
+		mHudLengths[field] = CharFormat.append(text,
+				CharFormat.append(text, 0, mHudLabels[field]),
+				mHudValues[field]);
+	}
+
+	private void invalidateHud() {
+		postInvalidate(0, 0, getWidth(), mHudHeight);
+	}
+
+	/**
+	 * @return the height the HUD covers at the top of the view, 0 while it is
+	 *         hidden
+	 */
+	private int getHudHeight() {
+		return mHudVisible ? mHudHeight : 0;
 	}
 
 	/**
@@ -70,52 +267,346 @@ public class TileView extends View {
 	 * 
 	 */
 	public void clearTiles() {
-		for (int x = 0; x < mXTileCount; x++) {
-			for (int y = 0; y < mYTileCount; y++) {
-				setTile(0, x, y);
-			}
-		}
+		mTileGrid.clear();
 	}
 
 	/**
 	 * Function to set the specified Drawable as the tile for a particular
-	 * integer key.
+	 * integer key. Keys are positive integers up to 127; the table grows to
+	 * fit.
 	 * 
 	 * @param key
 	 * @param tile
 	 */
 	public void loadTile(int key, Drawable tile) {
-		Bitmap bitmap = Bitmap.createBitmap(mTileSize, mTileSize,
-				Bitmap.Config.ARGB_8888);
-		Canvas canvas = new Canvas(bitmap);
-		tile.setBounds(0, 0, mTileSize, mTileSize);
-		tile.draw(canvas);
+		if (key >= mTileDrawables.length) {
+			Drawable[] drawables = new Drawable[Math.max(key + 1,
+					mTileDrawables.length * 2)];
+			System.arraycopy(mTileDrawables, 0, drawables, 0,
+					mTileDrawables.length);
+			mTileDrawables = drawables;
+		}
+		mTileDrawables[key] = tile;
+		mAtlasStale = true;
+	}
+
+	/**
+	 * Sets the format the tiles are rasterized in: ARGB_8888, the default, or
+	 * RGB_565 for opaque tiles.
+	 */
+	public void setTileConfig(Bitmap.Config config) {
+		if (config != mTileConfig) {
+			mTileConfig = config;
+			mAtlasStale = true;
+		}
+	}
+
+	/**
+	 * Changes the size of the tiles in pixels, recomputing how many fit and
+	 * rasterizing the tiles again at the new size.
+	 */
+	public void setTileSize(int tileSize) {
+		if (tileSize == mTileSize || tileSize <= 0)
+			return;
+
+		mTileSize = tileSize;
+		initTextPaints();
+		relayoutTiles();
+	}
+
+	/**
+	 * Makes the world the given number of tiles wide and high, scrolling it
+	 * under the camera if it is larger than the view; 0 fits the world to the
+	 * view again. Like a new view size, it resizes the grids, so it must be
+	 * called on the UI thread while no other thread changes tiles.
+	 */
+	public void setWorldSize(int xTileCount, int yTileCount) {
+		if (xTileCount == mXWorldSize && yTileCount == mYWorldSize)
+			return;
+
+		mXWorldSize = Math.max(0, xTileCount);
+		mYWorldSize = Math.max(0, yTileCount);
+		relayoutTiles();
+	}
+
+	/**
+	 * Goes through onSizeChanged() again at the current size, so the tile
+	 * counts and everything sized by them follow a new tile or world size.
+	 */
+	private void relayoutTiles() {
+		onSizeChanged(getWidth(), getHeight(), getWidth(), getHeight());
+		postInvalidate();
+	}
+
+	/**
+	 * @return the number of tiles across the view, which may be fewer than
+	 *         across the world
+	 */
+	public int getXViewTiles() {
+		return mXViewTiles;
+	}
+
+	public int getYViewTiles() {
+		return mYViewTiles;
+	}
+
+	public int getCameraX() {
+		return mTileGrid.getCameraX();
+	}
+
+	public int getCameraY() {
+		return mTileGrid.getCameraY();
+	}
+
+	/**
+	 * Moves the camera so the given world tile is in the top left corner, as
+	 * far as the world reaches. Like setTile(), it may be called from a thread
+	 * other than the UI thread.
+	 */
+	public void setCamera(int x, int y) {
+		mTileGrid.setCamera(x, y);
+	}
 
-		mTileArray[key] = bitmap;
+	/**
+	 * Keeps a world tile, such as the snake's head, in view: once it comes
+	 * within a quarter of the view of an edge the camera centers on it. The
+	 * camera only moves now and then, and each move redraws the view once.
+	 */
+	public void followCamera(int x, int y) {
+		mTileGrid.followCamera(x, y);
+	}
+
+	/**
+	 * Rasterizes the tiles into the atlas if a tile was loaded or the tile
+	 * size or format changed since it was last built.
+	 */
+	private void updateAtlas() {
+		if (!mAtlasStale && mAtlasTileSize == mTileSize)
+			return;
+
+		if (mAtlas != null) {
+			mAtlas.recycle();
+			mAtlas = null;
+		}
+		int count = mTileDrawables.length;
+		if (mTileSources.length != count) {
+			mTileSources = new Rect[count];
+		}
+		int rows = (count + ATLAS_COLUMNS - 1) / ATLAS_COLUMNS;
+		mAtlas = Bitmap.createBitmap(ATLAS_COLUMNS * mTileSize, rows
+				* mTileSize, mTileConfig);
+		Canvas canvas = new Canvas(mAtlas);
+		for (int key = 0; key < count; key++) {
+			Drawable tile = mTileDrawables[key];
+			if (tile == null) {
+				mTileSources[key] = null;
+				continue;
+			}
+
+			int left = key % ATLAS_COLUMNS * mTileSize;
+			int top = key / ATLAS_COLUMNS * mTileSize;
+			mTileSources[key] = new Rect(left, top, left + mTileSize, top
+					+ mTileSize);
+			tile.setBounds(left, top, left + mTileSize, top + mTileSize);
+			tile.draw(canvas);
+		}
+		mAtlasTileSize = mTileSize;
+		mAtlasStale = false;
+	}
+
+	/**
+	 * Draws a tile from the atlas with its top left corner at left, top.
+	 */
+	private void drawTile(Canvas canvas, int key, int left, int top) {
+		Rect source = key < mTileSources.length ? mTileSources[key] : null;
+		if (source == null)
+			return;
+
+		mTileDest.set(left, top, left + mTileSize, top + mTileSize);
+		canvas.drawBitmap(mAtlas, source, mTileDest, mPaint);
+	}
+
+	/**
+	 * Invalidates the tiles changed since the last call, or the whole view if
+	 * too many of them changed. Like setTile(), it may be called from a thread
+	 * other than the UI thread, as long as only one thread at a time changes
+	 * tiles.
+	 */
+	public void invalidateTiles() {
+		if (mDebugOverlay) {
+			postInvalidate(0, 0, getWidth(), getHudHeight() + mOverlayHeight);
+		}
+		if (mTileGrid.isFullRedraw()) {
+			postInvalidate();
+		}
+		mTileGrid.markDrawn(mTileInvalidator);
+	}
+
+	/**
+	 * Erases the static layer. Must be called on the UI thread.
+	 */
+	public void clearStaticTiles() {
+		mStaticGrid.clear();
+		mStaticLayerStale = true;
+		mTileGrid.requestFullRedraw();
+	}
+
+	/**
+	 * Puts a tile into the static layer, where it stays until
+	 * clearStaticTiles() is called. Meant for content that does not change
+	 * while a level is played. Must be called on the UI thread.
+	 *
+	 * @param tileindex
+	 * @param x
+	 * @param y
+	 */
+	public void setStaticTile(int tileindex, int x, int y) {
+		if (x < 0 || y < 0 || x >= mXTileCount || y >= mYTileCount)
+			return;
+
+		mStaticGrid.set(x, y, tileindex);
+		mStaticLayerStale = true;
+		mTileGrid.requestFullRedraw();
+	}
+
+	/**
+	 * Has the static layer rasterized again before the next draw, for a
+	 * subclass whose getStaticTile() changed. Must be called on the UI
+	 * thread.
+	 */
+	public void invalidateStaticTiles() {
+		mStaticLayerStale = true;
+		mTileGrid.requestFullRedraw();
+		postInvalidate();
+	}
+
+	/**
+	 * Looks up a static tile. The static layer only asks for the tiles the
+	 * camera sees, on the UI thread, whenever it is rasterized. Subclasses
+	 * that hold their static content elsewhere, such as a level's walls, may
+	 * return it from there rather than copy the whole world into the grid.
+	 *
+	 * @return the tile put at the world position with setStaticTile()
+	 */
+	protected int getStaticTile(int x, int y) {
+		return mStaticGrid.get(x, y);
+	}
+
+	/**
+	 * Rasterizes the static tiles the camera sees into the static layer.
+	 */
+	private void updateStaticLayer(int cameraX, int cameraY) {
+		if (mStaticCanvas == null || !mStaticLayerStale
+				&& cameraX == mLayerCameraX && cameraY == mLayerCameraY)
+			return;
+
+		mStaticLayer.eraseColor(0);
+		int lastX = Math.min(mXTileCount, cameraX + mXViewTiles);
+		int lastY = Math.min(mYTileCount, cameraY + mYViewTiles);
+		for (int x = cameraX; x < lastX; x++) {
+			for (int y = cameraY; y < lastY; y++) {
+				int tile = getStaticTile(x, y);
+				if (tile > 0) {
+					drawTile(mStaticCanvas, tile, mXOffset + (x - cameraX)
+							* mTileSize, mYOffset + (y - cameraY) * mTileSize);
+				}
+			}
+		}
+		mLayerCameraX = cameraX;
+		mLayerCameraY = cameraY;
+		mStaticLayerStale = false;
+	}
+
+	public FrameStats getFrameStats() {
+		return mFrameStats;
+	}
+
+	public boolean isDebugOverlay() {
+		return mDebugOverlay;
+	}
+
+	/**
+	 * Shows or hides the frame timing overlay.
+	 */
+	public void setDebugOverlay(boolean on) {
+		mDebugOverlay = on;
+		postInvalidate();
 	}
 
 	@Override
 	public void onDraw(Canvas canvas) {
+		long start = System.nanoTime();
 		super.onDraw(canvas);
-		for (int x = 0; x < mXTileCount; x += 1) {
-			for (int y = 0; y < mYTileCount; y += 1) {
-				if (mTileGrid[x][y] > 0) {
-					canvas.drawBitmap(mTileArray[mTileGrid[x][y]], mXOffset + x
-							* mTileSize, mYOffset + y * mTileSize, mPaint);
-				}
-			}
+
+		// one camera position for the whole frame
+		int cameraX = mTileGrid.getCameraX();
+		int cameraY = mTileGrid.getCameraY();
+
+		updateAtlas();
+		updateStaticLayer(cameraX, cameraY);
+		if (mStaticLayer != null) {
+			canvas.drawBitmap(mStaticLayer, 0, 0, mPaint);
+		}
+
+		// only visit the tiles the camera sees inside the area being redrawn
+		int firstX = 0;
+		int firstY = 0;
+		int lastX = mXViewTiles;
+		int lastY = mYViewTiles;
+		if (canvas.getClipBounds(mClip)) {
+			firstX = Math.max(0, (mClip.left - mXOffset) / mTileSize);
+			firstY = Math.max(0, (mClip.top - mYOffset) / mTileSize);
+			lastX = Math.min(mXViewTiles, (mClip.right - mXOffset
+					+ mTileSize - 1) / mTileSize);
+			lastY = Math.min(mYViewTiles, (mClip.bottom - mYOffset
+					+ mTileSize - 1) / mTileSize);
+		}
+		mDrawCanvas = canvas;
+		mTileGrid.paint(cameraX, cameraY, firstX, firstY, lastX, lastY,
+				mTilePainter);
+		mDrawCanvas = null;
+
+		if (mHudVisible) {
+			drawHud(canvas);
 		}
+		if (mDebugOverlay) {
+			drawOverlay(canvas);
+		}
+		mFrameStats.recordDraw(System.nanoTime() - start);
 	}
 
 	/**
-	 * Rests the internal array of Bitmaps used for drawing tiles, and sets the
-	 * maximum index of tiles to be inserted
-	 * 
-	 * @param tilecount
+	 * Draws the HUD's fields in the band at the top of the view.
+	 */
+	private void drawHud(Canvas canvas) {
+		for (int field = 0; field < mHudLabels.length; field++) {
+			canvas.drawText(mHudText[field], 0, mHudLengths[field],
+					mHudLeft[field], mHudBaseline, mHudPaint);
+		}
+	}
+
+	/**
+	 * Draws the frame timing overlay below the HUD.
 	 */
+	private void drawOverlay(Canvas canvas) {
+		int top = getHudHeight();
+		float lineHeight = mOverlayPaint.descent() - mOverlayPaint.ascent();
+		canvas.drawRect(0, top, getWidth(), top + mOverlayHeight,
+				mOverlayBackground);
+		for (int line = 0; line < FrameStats.OVERLAY_LINES; line++) {
+			int length = mFrameStats.formatOverlayLine(line, mOverlayLine);
+			canvas.drawText(mOverlayLine, 0, length, lineHeight / 4, top
+					+ (line + 1) * lineHeight - mOverlayPaint.descent(),
+					mOverlayPaint);
+		}
+	}
 
-	public void resetTiles(int tilecount) {
-		mTileArray = new Bitmap[tilecount];
+	/**
+	 * Makes room for a tile at the given coordinates, so that setting it
+	 * later does not allocate.
+	 */
+	public void reserveTile(int x, int y) {
+		mTileGrid.reserve(x, y);
 	}
 
 	/**
@@ -128,22 +619,37 @@ public class TileView extends View {
 	 * @param y
 	 */
 	public void setTile(int tileindex, int x, int y) {
-		if (x < 0 || y < 0)
-			return;
-
-		mTileGrid[x][y] = tileindex;
+		mTileGrid.set(tileindex, x, y);
 	}
 
 	@Override
 	protected void onSizeChanged(int w, int h, int oldw, int oldh) {
-		mXTileCount = (int) Math.floor(w / mTileSize);
-		mYTileCount = (int) Math.floor(h / mTileSize);
+		// the tiles go below the HUD's band, whether it is showing or not
+		int boardHeight = Math.max(0, h - mHudHeight);
+		mXViewTiles = (int) Math.floor(w / mTileSize);
+		mYViewTiles = (int) Math.floor(boardHeight / mTileSize);
+		mXTileCount = mXWorldSize > 0 ? mXWorldSize : mXViewTiles;
+		mYTileCount = mYWorldSize > 0 ? mYWorldSize : mYViewTiles;
+
+		// a world smaller than the view is centered in it
+		mXOffset = (w - mTileSize * Math.min(mXViewTiles, mXTileCount)) / 2;
+		mYOffset = mHudHeight
+				+ (boardHeight - mTileSize * Math.min(mYViewTiles, mYTileCount))
+				/ 2;
 
-		mXOffset = ((w - (mTileSize * mXTileCount)) / 2);
-		mYOffset = ((h - (mTileSize * mYTileCount)) / 2);
+		mTileGrid.resize(mXTileCount, mYTileCount, mXViewTiles, mYViewTiles);
+		mStaticGrid.resize(mXTileCount, mYTileCount);
+		mStaticLayerStale = true;
 
-		mTileGrid = new int[mXTileCount][mYTileCount];
-		clearTiles();
+		if (mStaticLayer != null) {
+			mStaticLayer.recycle();
+			mStaticLayer = null;
+			mStaticCanvas = null;
+		}
+		if (w > 0 && h > 0) {
+			mStaticLayer = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+			mStaticCanvas = new Canvas(mStaticLayer);
+		}
 	}
 
 }
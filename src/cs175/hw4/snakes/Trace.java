@@ -0,0 +1,162 @@
+package cs175.hw4.snakes;
+
+/**
+ * Trace: a record of what the game did, for finding out afterwards what
+ * happened. Events are numbers with two primitive arguments, written into a
+ * ring of longs allocated once, so recording one allocates nothing; the
+ * oldest events are overwritten. Writers hold the ring's lock for a few
+ * stores only, so it is next to never contended. The text form is only
+ * built by dump(), when someone asks for it.
+ *
+ * Tracing is gated twice. Call sites test ENABLED first:
+ *
+ * <pre>
+ * if (Trace.ENABLED)
+ * 	Trace.event(Trace.DEBUG, Trace.TOUCH, direction, 0);
+ * </pre>
+ *
+ * so with ENABLED false the compiler drops them entirely. Otherwise events
+ * above the level set at run time are ignored after one comparison.
+ */
+public final class Trace {
+
+	/**
+	 * Set to false to compile every trace call out of the game.
+	 */
+	public static final boolean ENABLED = true;
+
+	/**
+	 * Levels: OFF records nothing, INFO the game's mode and score changes,
+	 * DEBUG every input as well.
+	 */
+	public static final int OFF = 0;
+	public static final int INFO = 1;
+	public static final int DEBUG = 2;
+
+	/**
+	 * Events and their arguments.
+	 */
+	public static final int TOUCH = 1; // direction, x
+	public static final int TURN = 2; // input, 1 if queued, 0 if dropped
+	public static final int MODE = 3; // old mode, new mode
+	public static final int SCORE = 4; // score, mode
+	public static final int HIGH_SCORE = 5; // high score, unused
+
+	private static final String[] EVENT_NAMES = { "?", "touch", "turn",
+			"mode", "score", "high score" };
+
+	/**
+	 * A power of two, so a sequence number maps to its slot with a mask.
+	 */
+	private static final int CAPACITY = 1024;
+
+	/**
+	 * Each event takes five longs: its sequence number plus one, 0 for an
+	 * empty slot, the time, the level and event in one, and the two
+	 * arguments.
+	 */
+	private static final int RECORD_LONGS = 5;
+
+	private static final long[] sRecords = new long[CAPACITY * RECORD_LONGS];
+	private static int sNext;
+	private static volatile int sLevel = INFO;
+
+	private Trace() {
+	}
+
+	public static int getLevel() {
+		return sLevel;
+	}
+
+	/**
+	 * @param level
+	 *            OFF, INFO or DEBUG
+	 */
+	public static void setLevel(int level) {
+		sLevel = level;
+	}
+
+	/**
+	 * @return true if events of the given level are recorded
+	 */
+	public static boolean isOn(int level) {
+		return ENABLED && level <= sLevel;
+	}
+
+	/**
+	 * Records an event if its level is on. May be called from any thread.
+	 *
+	 * @param level
+	 *            INFO or DEBUG
+	 * @param event
+	 *            one of the event constants
+	 */
+	public static void event(int level, int event, long a, long b) {
+		if (!ENABLED || level > sLevel)
+			return;
+
+		long[] records = sRecords;
+		synchronized (records) {
+			int sequence = sNext++;
+			int base = (sequence & (CAPACITY - 1)) * RECORD_LONGS;
+			records[base] = sequence + 1L;
+			records[base + 1] = System.nanoTime();
+			records[base + 2] = (long) level << 32 | event;
+			records[base + 3] = a;
+			records[base + 4] = b;
+		}
+	}
+
+	/**
+	 * Forgets every event recorded so far.
+	 */
+	public static void clear() {
+		synchronized (sRecords) {
+			for (int i = 0; i < sRecords.length; i += RECORD_LONGS) {
+				sRecords[i] = 0;
+			}
+		}
+	}
+
+	/**
+	 * @return the events still in the ring, oldest first, one per line with
+	 *         how many milliseconds before the newest it happened
+	 */
+	public static String dump() {
+		long[] records;
+		int next;
+		synchronized (sRecords) {
+			records = sRecords.clone();
+			next = sNext;
+		}
+
+		StringBuilder out = new StringBuilder();
+		char[] buffer = new char[24];
+		int first = Math.max(0, next - CAPACITY);
+		long newest = 0;
+		if (next > 0) {
+			newest = records[((next - 1) & (CAPACITY - 1)) * RECORD_LONGS + 1];
+		}
+		for (int sequence = first; sequence < next; sequence++) {
+			int base = (sequence & (CAPACITY - 1)) * RECORD_LONGS;
+			if (records[base] != sequence + 1L)
+				continue;
+
+			int level = (int) (records[base + 2] >>> 32);
+			int event = (int) records[base + 2];
+			long age = newest - records[base + 1];
+			out.append('-');
+			out.append(buffer, 0, CharFormat.appendMillis(buffer, 0, age));
+			out.append(level == DEBUG ? " D " : " I ");
+			if (event < 0 || event >= EVENT_NAMES.length) {
+				event = 0;
+			}
+			out.append(EVENT_NAMES[event]);
+			out.append(' ').append(records[base + 3]);
+			out.append(' ').append(records[base + 4]);
+			out.append('\n');
+		}
+		return out.toString();
+	}
+
+}
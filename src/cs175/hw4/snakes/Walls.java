@@ -1,52 +1,79 @@
 package cs175.hw4.snakes;
 
 /**
- * Walls class keep track of walls when sanke is moving
- * 
+ * Walls class keep track of walls when sanke is moving. The walls of a level
+ * are compiled once when the level starts into a compact bitset, one bit per
+ * cell, and never change afterwards.
+ *
  * **/
 public class Walls {
 
-	private int[][][] mywallArray;
+	private final int mXMax;
+	private final int mYMax;
 
-	public Walls(int xmax, int ymax) {
-		mywallArray = new int[xmax][ymax][1];
-		reset();
+	/**
+	 * mBits: bit (y * mXMax + x) is set for every wall
+	 */
+	private final long[] mBits;
+
+	private Walls(int xmax, int ymax) {
+		mXMax = xmax;
+		mYMax = ymax;
+		mBits = new long[(xmax * ymax + 63) >> 6];
 	}
 
-	public int getXMax() {
+	/**
+	 * Compiles the walls of a level for a board of the given size by applying
+	 * the level's wall and hole rectangles in order.
+	 */
+	public static Walls compile(Level level, int xmax, int ymax) {
+		Walls walls = new Walls(xmax, ymax);
 
-		return mywallArray.length;
+		int[] rects = level.getRects();
+		for (int i = 0; i < rects.length; i += Level.RECT_SIZE) {
+			boolean wall = rects[i] == Level.RECT_WALL;
+			int x0 = Math.max(0, Level.resolve(rects[i + 1], xmax));
+			int y0 = Math.max(0, Level.resolve(rects[i + 2], ymax));
+			int x1 = Math.min(xmax, Level.resolve(rects[i + 3], xmax));
+			int y1 = Math.min(ymax, Level.resolve(rects[i + 4], ymax));
+			for (int y = y0; y < y1; y++) {
+				for (int x = x0; x < x1; x++) {
+					walls.setWall(x, y, wall);
+				}
+			}
+		}
+		return walls;
+	}
 
+	public int getXMax() {
+		return mXMax;
 	}
 
 	public int getYMax() {
-		return mywallArray[0].length;
+		return mYMax;
 	}
 
-	public boolean addWall(int x, int y) {
-		mywallArray[x][y][0] = 1;
-		return true;
+	private void setWall(int x, int y, boolean wall) {
+		int cell = y * mXMax + x;
+		if (wall) {
+			mBits[cell >> 6] |= 1L << cell;
+		} else {
+			mBits[cell >> 6] &= ~(1L << cell);
+		}
 	}
 
+	/**
+	 * @return true for a wall, and for anything outside the board
+	 */
 	public boolean getWall(int x, int y) {
 		if (x < 0 || y < 0)
 			return true;
 
-		if (x >= mywallArray.length || y >= mywallArray[0].length)
-			return true;
-
-		if (mywallArray[x][y][0] == 1)
+		if (x >= mXMax || y >= mYMax)
 			return true;
-		else
-			return false;
-	}
 
-	public void reset() {
-		for (int i = 0; i < mywallArray.length; i++) {
-			for (int j = 0; j < mywallArray[i].length; j++) {
-				mywallArray[i][j][0] = 0;
-			}
-		}
+		int cell = y * mXMax + x;
+		return (mBits[cell >> 6] & (1L << cell)) != 0;
 	}
 
 }
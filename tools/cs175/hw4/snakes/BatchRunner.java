@@ -0,0 +1,251 @@
+package cs175.hw4.snakes;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * BatchRunner: plays many independent games in parallel to see how levels
+ * and strategies play out. Each worker thread owns its engine and player and
+ * takes games in chunks from a shared counter; game i is always played from
+ * the same seed and on the same level, so a batch gives the same totals
+ * however many threads run it. Workers add up a chunk's results locally and
+ * then into lock-free totals, so they hardly ever touch shared memory.
+ *
+ * <pre>
+ * java -cp bin/classes:tools cs175.hw4.snakes.BatchRunner \
+ *     assets/levels.pack 1000000 [autopilot|random] [threads] [seed]
+ * </pre>
+ */
+public class BatchRunner {
+
+	private static final int CHUNK = 256;
+	private static final int BOARD_WIDTH = 40;
+	private static final int BOARD_HEIGHT = 30;
+
+	private final LevelPack mLevels;
+	private final boolean mAutopilot;
+	private final long mSeed;
+
+	private final AtomicLong mNextGame = new AtomicLong();
+	private long mGameCount;
+
+	/**
+	 * Totals over the games played: indexed by the mode a game ended in, and
+	 * by what killed the snake.
+	 */
+	private final AtomicLongArray mOutcomes = new AtomicLongArray(
+			GameEngine.GAMEOVER + 1);
+	private final AtomicLongArray mDeaths = new AtomicLongArray(
+			GameEngine.DEATH_BODY + 1);
+	private final AtomicLong mGames = new AtomicLong();
+	private final AtomicLong mScore = new AtomicLong();
+	private final AtomicLong mLength = new AtomicLong();
+	private final AtomicLong mSteps = new AtomicLong();
+	private final AtomicLong mMaxScore = new AtomicLong();
+
+	/**
+	 * @param autopilot
+	 *            true to play with the Autopilot, false to turn at random
+	 */
+	public BatchRunner(LevelPack levels, boolean autopilot, long seed) {
+		mLevels = levels;
+		mAutopilot = autopilot;
+		mSeed = seed;
+	}
+
+	/**
+	 * Plays games 0 to gameCount - 1 on a pool of threads and waits for them.
+	 */
+	public void run(long gameCount, int threads) throws InterruptedException {
+		mGameCount = gameCount;
+		mNextGame.set(0);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		for (int i = 0; i < threads; i++) {
+			pool.execute(new Worker());
+		}
+		pool.shutdown();
+		while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+			// keep waiting
+		}
+	}
+
+	/**
+	 * One thread's share of the batch, with the engine and player it plays
+	 * every one of its games with.
+	 */
+	private class Worker implements Runnable {
+
+		private final GameEngine mEngine = new GameEngine(mLevels,
+				BOARD_WIDTH, BOARD_HEIGHT);
+		private final Autopilot mPilot = new Autopilot();
+		private final Random mTurns = new Random();
+
+		/**
+		 * Totals of the games played since they were last published.
+		 */
+		private final long[] mChunkOutcomes = new long[mOutcomes.length()];
+		private final long[] mChunkDeaths = new long[mDeaths.length()];
+		private long mChunkScore;
+		private long mChunkLength;
+		private long mChunkSteps;
+		private long mChunkMaxScore;
+
+		@Override
+		public void run() {
+			while (true) {
+				long first = mNextGame.getAndAdd(CHUNK);
+				if (first >= mGameCount)
+					return;
+
+				long last = Math.min(first + CHUNK, mGameCount);
+				for (long game = first; game < last; game++) {
+					play(game);
+				}
+				publish(last - first);
+			}
+		}
+
+		private void play(long game) {
+			long seed = mix(mSeed + game);
+			mEngine.setProgress((int) (game % mLevels.getLevelCount()),
+					GameEngine.START_LIVES, 0);
+			mEngine.newGame(seed);
+			mEngine.setMode(GameEngine.RUNNING);
+			mTurns.setSeed(~seed);
+
+			int outcome;
+			int length;
+			do {
+				// a step ending the game does not move the snake
+				length = mEngine.getSnakeLength();
+				int input;
+				if (mAutopilot) {
+					input = mPilot.nextInput(mEngine);
+				} else {
+					int turn = mTurns.nextInt(8);
+					input = turn == 0 ? GameEngine.INPUT_LEFT
+							: turn == 1 ? GameEngine.INPUT_RIGHT
+									: GameEngine.INPUT_NONE;
+				}
+				outcome = mEngine.step(input);
+			} while (outcome == GameEngine.RUNNING);
+
+			long score = outcome == GameEngine.GAMEOVER ? mEngine
+					.getFinalScore() : mEngine.getScore();
+			mChunkOutcomes[outcome]++;
+			mChunkDeaths[mEngine.getDeathCause()]++;
+			mChunkScore += score;
+			mChunkLength += length;
+			mChunkSteps += mEngine.getTick();
+			mChunkMaxScore = Math.max(mChunkMaxScore, score);
+		}
+
+		/**
+		 * Adds the local totals to the shared ones and starts over.
+		 */
+		private void publish(long games) {
+			for (int i = 0; i < mChunkOutcomes.length; i++) {
+				mOutcomes.addAndGet(i, mChunkOutcomes[i]);
+				mChunkOutcomes[i] = 0;
+			}
+			for (int i = 0; i < mChunkDeaths.length; i++) {
+				mDeaths.addAndGet(i, mChunkDeaths[i]);
+				mChunkDeaths[i] = 0;
+			}
+			mGames.addAndGet(games);
+			mScore.addAndGet(mChunkScore);
+			mLength.addAndGet(mChunkLength);
+			mSteps.addAndGet(mChunkSteps);
+			mChunkScore = 0;
+			mChunkLength = 0;
+			mChunkSteps = 0;
+
+			long max = mMaxScore.get();
+			while (mChunkMaxScore > max
+					&& !mMaxScore.compareAndSet(max, mChunkMaxScore)) {
+				max = mMaxScore.get();
+			}
+		}
+	}
+
+	/**
+	 * Spreads consecutive numbers over all 64 bits (the SplitMix64
+	 * finalizer), so neighbouring games get unrelated seeds.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	public long getGames() {
+		return mGames.get();
+	}
+
+	public long getSteps() {
+		return mSteps.get();
+	}
+
+	/**
+	 * @return the totals, one per line
+	 */
+	public String report() {
+		long games = Math.max(1, mGames.get());
+		StringBuilder out = new StringBuilder();
+		out.append("games: ").append(mGames.get()).append('\n');
+		out.append("lose/win/gameover: ")
+				.append(mOutcomes.get(GameEngine.LOSE)).append('/')
+				.append(mOutcomes.get(GameEngine.WIN)).append('/')
+				.append(mOutcomes.get(GameEngine.GAMEOVER)).append('\n');
+		out.append("deaths wall/body: ")
+				.append(mDeaths.get(GameEngine.DEATH_WALL)).append('/')
+				.append(mDeaths.get(GameEngine.DEATH_BODY)).append('\n');
+		out.append("score mean/max: ").append((double) mScore.get() / games)
+				.append('/').append(mMaxScore.get()).append('\n');
+		out.append("length mean: ").append((double) mLength.get() / games)
+				.append('\n');
+		out.append("steps mean: ").append((double) mSteps.get() / games)
+				.append('\n');
+		return out.toString();
+	}
+
+	public static void main(String[] args) throws IOException,
+			InterruptedException {
+		if (args.length < 2) {
+			System.err.println("usage: BatchRunner <levels.pack> <games>"
+					+ " [autopilot|random] [threads] [seed]");
+			System.exit(2);
+		}
+
+		LevelPack levels;
+		InputStream in = new FileInputStream(args[0]);
+		try {
+			levels = LevelPack.read(in);
+		} finally {
+			in.close();
+		}
+		long games = Long.parseLong(args[1]);
+		boolean autopilot = args.length < 3 || args[2].equals("autopilot");
+		int threads = args.length < 4 ? Runtime.getRuntime()
+				.availableProcessors() : Integer.parseInt(args[3]);
+		long seed = args.length < 5 ? 0 : Long.parseLong(args[4]);
+
+		BatchRunner runner = new BatchRunner(levels, autopilot, seed);
+		long start = System.nanoTime();
+		runner.run(games, threads);
+		long nanos = System.nanoTime() - start;
+
+		System.out.print(runner.report());
+		System.out.println(threads + " threads, " + nanos / 1000000 + " ms, "
+				+ (long) (runner.getGames() * 1e9 / nanos) + " games/s, "
+				+ (long) (runner.getSteps() * 1e9 / nanos) + " steps/s");
+	}
+
+}
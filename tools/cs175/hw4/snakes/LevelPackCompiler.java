@@ -0,0 +1,184 @@
+package cs175.hw4.snakes;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LevelPackCompiler: turns the text level descriptions in levels/levels.txt
+ * into the binary pack the game loads from assets/levels.pack. Run it on a
+ * desktop JVM with the game's classes on the classpath:
+ *
+ * <pre>
+ * java -cp bin/classes:tools cs175.hw4.snakes.LevelPackCompiler \
+ *     levels/levels.txt assets/levels.pack
+ * </pre>
+ */
+public class LevelPackCompiler {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("usage: LevelPackCompiler <levels.txt> <levels.pack>");
+			System.exit(2);
+		}
+
+		Level[] levels = parse(args[0]);
+		OutputStream out = new FileOutputStream(args[1]);
+		try {
+			LevelPack.write(levels, out);
+		} finally {
+			out.close();
+		}
+		System.out.println("wrote " + levels.length + " levels to " + args[1]);
+	}
+
+	private static Level[] parse(String path) throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+				new FileInputStream(path), "UTF-8"));
+		List<Level> levels = new ArrayList<Level>();
+		try {
+			int lineNumber = 0;
+			LevelSource level = null;
+			String line;
+			while ((line = in.readLine()) != null) {
+				lineNumber++;
+				int comment = line.indexOf('#');
+				if (comment >= 0) {
+					line = line.substring(0, comment);
+				}
+				String[] words = line.trim().split("\\s+");
+				if (words[0].length() == 0) {
+					continue;
+				}
+
+				try {
+					if (words[0].equals("level")) {
+						level = new LevelSource();
+					} else if (level == null) {
+						throw new IllegalArgumentException(
+								"expected \"level\"");
+					} else if (words[0].equals("end")) {
+						levels.add(level.toLevel());
+						level = null;
+					} else {
+						level.parse(words);
+					}
+				} catch (IllegalArgumentException e) {
+					throw new IOException(path + ":" + lineNumber + ": "
+							+ e.getMessage());
+				}
+			}
+			if (level != null) {
+				throw new IOException(path + ": missing \"end\"");
+			}
+		} finally {
+			in.close();
+		}
+		return levels.toArray(new Level[levels.size()]);
+	}
+
+	/**
+	 * The attributes of one level while it is being read.
+	 */
+	private static class LevelSource {
+		int moveDelay = 600;
+		int appleCount = 0;
+		int startX = Level.coord(Level.ANCHOR_START, 5);
+		int startY = Level.coord(Level.ANCHOR_CENTER, 0);
+		int startLength = 6;
+		int startDirection = GameEngine.EAST;
+		int exitX = Level.coord(Level.ANCHOR_END, 0);
+		int exitY = Level.coord(Level.ANCHOR_CENTER, 0);
+		List<Integer> rects = new ArrayList<Integer>();
+
+		void parse(String[] words) {
+			String key = words[0];
+			if (key.equals("delay")) {
+				expect(words, 2);
+				moveDelay = Integer.parseInt(words[1]);
+			} else if (key.equals("apples")) {
+				expect(words, 2);
+				appleCount = Integer.parseInt(words[1]);
+			} else if (key.equals("start")) {
+				expect(words, 5);
+				startX = coord(words[1]);
+				startY = coord(words[2]);
+				startLength = Integer.parseInt(words[3]);
+				startDirection = direction(words[4]);
+			} else if (key.equals("exit")) {
+				expect(words, 3);
+				exitX = coord(words[1]);
+				exitY = coord(words[2]);
+			} else if (key.equals("wall") || key.equals("hole")) {
+				expect(words, 5);
+				rects.add(key.equals("wall") ? Level.RECT_WALL
+						: Level.RECT_HOLE);
+				for (int i = 1; i <= 4; i++) {
+					rects.add(coord(words[i]));
+				}
+			} else {
+				throw new IllegalArgumentException("unknown keyword \"" + key
+						+ "\"");
+			}
+		}
+
+		Level toLevel() {
+			int[] packed = new int[rects.size()];
+			for (int i = 0; i < packed.length; i++) {
+				packed[i] = rects.get(i);
+			}
+			return new Level(moveDelay, appleCount, startX, startY,
+					startLength, startDirection, exitX, exitY, packed);
+		}
+
+		private static void expect(String[] words, int count) {
+			if (words.length != count) {
+				throw new IllegalArgumentException("\"" + words[0]
+						+ "\" takes " + (count - 1) + " values");
+			}
+		}
+
+		/**
+		 * Parses "n", "c", "c+n", "c-n", "e" or "e-n".
+		 */
+		private static int coord(String word) {
+			int anchor = Level.ANCHOR_START;
+			String offset = word;
+			if (word.startsWith("c")) {
+				anchor = Level.ANCHOR_CENTER;
+				offset = word.substring(1);
+			} else if (word.startsWith("e")) {
+				anchor = Level.ANCHOR_END;
+				offset = word.substring(1);
+			}
+			if (offset.startsWith("+")) {
+				offset = offset.substring(1);
+			}
+			int value = offset.length() == 0 ? 0 : Integer.parseInt(offset);
+			if (value < -128 || value > 127) {
+				throw new IllegalArgumentException("offset out of range: "
+						+ word);
+			}
+			return Level.coord(anchor, value);
+		}
+
+		private static int direction(String word) {
+			if (word.equals("north"))
+				return GameEngine.NORTH;
+			if (word.equals("south"))
+				return GameEngine.SOUTH;
+			if (word.equals("east"))
+				return GameEngine.EAST;
+			if (word.equals("west"))
+				return GameEngine.WEST;
+			throw new IllegalArgumentException("unknown direction \"" + word
+					+ "\"");
+		}
+	}
+
+}